@@ -20,6 +20,7 @@ package org.eclipse.jetty.maven.plugin;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -34,8 +35,10 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -43,7 +46,11 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.jetty.maven.plugin.utils.AbstractFileWatcher;
+import org.eclipse.jetty.maven.plugin.utils.ChangeDebouncer;
+import org.eclipse.jetty.maven.plugin.utils.HotSwapper;
 import org.eclipse.jetty.maven.plugin.utils.PidUtil;
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
 import org.eclipse.jetty.security.LoginService;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
@@ -62,6 +69,16 @@ import org.eclipse.jetty.xml.XmlConfiguration;
  */
 public abstract class AbstractJettyMojo extends AbstractMojo
 {
+    /**
+     * Key of the changes reported by the scanner of the webapp
+     */
+    private static final String RELOAD_KEY = "webapp";
+
+    /**
+     * Changed files of the resource directories that require a restart of the webapp
+     */
+    private static final Pattern STATIC_RESOURCE_EXCLUDE = Pattern.compile("WEB-INF/[^/]+\\.xml");
+
     /**
      * Whether or not to include dependencies on the plugin's classpath with &lt;scope&gt;provided&lt;/scope&gt;
      * Use WITH CAUTION as you may wind up with duplicate jars/classes.
@@ -128,14 +145,34 @@ public abstract class AbstractJettyMojo extends AbstractMojo
     protected int scanIntervalSeconds;
 
     /**
-     * reload can be set to either 'automatic' or 'manual'
+     * reload can be set to either 'automatic', 'manual' or 'hotswap'
      *
      * if 'manual' then the context can be reloaded by a linefeed in the console
      * if 'automatic' then traditional reloading on changed files is enabled.
+     * if 'hotswap' then changed classes are redefined in place when possible (see
+     * {@link org.eclipse.jetty.maven.plugin.utils.HotSwapAgent}), falling back to
+     * the traditional reloading otherwise.
      */
     @Parameter(property = "jetty.reload", defaultValue = "automatic")
     protected String reload;
 
+    /**
+     * Quiet period in milliseconds before reloading: the changes detected by the scanner
+     * are collected until no new change happened for this long, then a single restart is
+     * issued. Useful when the IDE or the compiler write files over several scans.
+     * The scanner of the main webapp is stopped while it restarts, the files changed
+     * meanwhile do not trigger another restart. Disabled by default.
+     */
+    @Parameter(property = "jetty.reloadQuietMillis", defaultValue = "0")
+    protected long reloadQuietMillis;
+
+    /**
+     * Max time in milliseconds a restart can be postponed by reloadQuietMillis
+     * while files keep changing.
+     */
+    @Parameter(property = "jetty.reloadMaxDelayMillis", defaultValue = "10000")
+    protected long reloadMaxDelayMillis;
+
     /**
      * File containing system properties to be set before execution
      *
@@ -183,6 +220,22 @@ public abstract class AbstractJettyMojo extends AbstractMojo
     @Parameter(property = "dumponStart", defaultValue = "false")
     protected boolean dumpOnStart;
 
+    /**
+     * Print the time and the memory allocated by each phase of the startup of each webapp,
+     * the slowest first, and write them to target/jetty-startup-profile.json.
+     * The forked goals profile the startup in the forked process.
+     */
+    @Parameter(property = "jetty.profileStartup", defaultValue = "false")
+    protected boolean profileStartup;
+
+    /**
+     * Seconds the forked goals not waiting for the child wait for the forked process to
+     * report that it started or failed. The wait ends as soon as the process reports its
+     * startup or exits, this only bounds a process that hangs.
+     */
+    @Parameter(property = "jetty.startupTimeout", defaultValue = "600")
+    protected int startupTimeout;
+
     /**
      * Skip this mojo execution.
      */
@@ -202,12 +255,35 @@ public abstract class AbstractJettyMojo extends AbstractMojo
     @Parameter(property = "jetty.useIntelliJOverlays", defaultValue = "true")
     protected boolean useIntelliJOverlays;
 
+    /**
+     * How the overlays are applied, overriding the overlayMode of the webAppConfig:
+     * 'unpack' to unpack them to target/jetty_overlays, 'archive' to serve them straight
+     * from their war file without writing anything, 'none' to ignore them.
+     */
+    @Parameter(property = "jetty.overlayMode")
+    protected String overlayMode;
+
+    /**
+     * Generate a quickstart descriptor in target/jetty_quickstart on the first start of the
+     * webapp, and start from it (skipping the discovery of fragments, annotations and tlds)
+     * until a jar of the classpath, a class file name or a descriptor changes.
+     * Not used by the forked and distro goals.
+     */
+    @Parameter(property = "jetty.reuseQuickStart", defaultValue = "false")
+    protected boolean reuseQuickStart;
+
     /**
      * The maven project.
      */
     @Parameter(defaultValue = "${project}", readonly = true)
     protected MavenProject project;
 
+    /**
+     * The maven session.
+     */
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    protected MavenSession session;
+
     /**
      * The artifacts for the project.
      */
@@ -240,6 +316,11 @@ public abstract class AbstractJettyMojo extends AbstractMojo
      */
     protected Scanner scanner;
 
+    /**
+     * The listener of the scanner, stopped with jetty when it debounces the changes
+     */
+    private AbstractFileWatcher.ChangeListener scannerListener;
+
     /**
      * A scanner to check ENTER hits on the console
      */
@@ -501,6 +582,9 @@ public abstract class AbstractJettyMojo extends AbstractMojo
 
             jettyStarted();
 
+            if (profileStartup)
+                reportStartupProfile();
+
             if (dumpOnStart)
             {
                 getLog().info(this.server.dump());
@@ -513,21 +597,24 @@ public abstract class AbstractJettyMojo extends AbstractMojo
                 scanner.setScanInterval(scanIntervalSeconds);
                 scanner.setScanDepth(Scanner.MAX_SCAN_DEPTH); //always fully walk directory hierarchies
                 scanner.setReportExistingFilesOnStartup(false);
-                scanner.addListener(new Scanner.BulkListener()
+                final AbstractFileWatcher.ChangeListener listener = debounce(changes ->
                 {
-                    public void filesChanged(List<String> changes)
+                    try
                     {
-                        try
-                        {
-                            boolean reconfigure = changes.contains(project.getFile().getCanonicalPath());
-                            restartWebApp(reconfigure);
-                        }
-                        catch (Exception e)
-                        {
-                            getLog().error("Error reconfiguring/restarting webapp after change in watched files", e);
-                        }
+                        boolean reconfigure = changes.get(RELOAD_KEY).contains(project.getFile().getCanonicalPath());
+                        if (!reconfigure && refreshResources(webApp, changes.get(RELOAD_KEY)))
+                            return;
+                        if (!reconfigure && hotSwap(webApp, changes.get(RELOAD_KEY)))
+                            return;
+                        restartWebApp(reconfigure);
+                    }
+                    catch (Exception e)
+                    {
+                        getLog().error("Error reconfiguring/restarting webapp after change in watched files", e);
                     }
                 });
+                scannerListener = listener;
+                scanner.addListener((Scanner.BulkListener)changes -> listener.filesChanged(Collections.singletonMap(RELOAD_KEY, changes)));
                 configureScanner();
                 startScanner();
             }
@@ -539,6 +626,7 @@ public abstract class AbstractJettyMojo extends AbstractMojo
             if (!nonBlocking)
             {
                 server.join();
+                stopDebouncing(scannerListener);
                 jettyStopped();
             }
         }
@@ -555,6 +643,24 @@ public abstract class AbstractJettyMojo extends AbstractMojo
         }
     }
 
+    /**
+     * Print the startup profile of the webapps and write it to the build directory.
+     */
+    protected void reportStartupProfile()
+    {
+        List<JettyWebAppContext> webApps = StartupProfiler.getWebApps(server);
+        getLog().info(StartupProfiler.toTable(webApps));
+        File file = new File(project.getBuild().getDirectory(), StartupProfiler.FILE_NAME);
+        try
+        {
+            StartupProfiler.writeJson(webApps, file);
+        }
+        catch (IOException e)
+        {
+            getLog().warn("Cannot write the startup profile to " + file, e);
+        }
+    }
+
     /**
      * This is called just after the server started.
      */
@@ -589,6 +695,7 @@ public abstract class AbstractJettyMojo extends AbstractMojo
         //As of jetty-7, you must use a <webApp> element
         if (webApp == null)
             webApp = new JettyWebAppContext();
+        webApp.setProfileStartup(profileStartup);
 
         //Apply any context xml file to set up the webapp
         //CAUTION: if you've defined a <webApp> element then the
@@ -604,8 +711,11 @@ public abstract class AbstractJettyMojo extends AbstractMojo
             }
             
             getLog().info("Applying context xml file " + contextXml);
-            XmlConfiguration xmlConfiguration = new XmlConfiguration(Resource.toURL(path.toFile()));
-            xmlConfiguration.configure(webApp);
+            try (StartupProfiler.Phase ignored = webApp.getStartupProfiler().begin("apply context xml (plugin)"))
+            {
+                XmlConfiguration xmlConfiguration = new XmlConfiguration(Resource.toURL(path.toFile()));
+                xmlConfiguration.configure(webApp);
+            }
         }
 
         //If no contextPath was specified, go with default of project artifactid
@@ -652,6 +762,119 @@ public abstract class AbstractJettyMojo extends AbstractMojo
         scanner.start();
     }
 
+    /**
+     * Wrap a change listener so that it honours reloadQuietMillis and reloadMaxDelayMillis.
+     *
+     * @param listener the listener restarting the webapps
+     * @return the listener to register with the scanner
+     */
+    protected AbstractFileWatcher.ChangeListener debounce(AbstractFileWatcher.ChangeListener listener)
+    {
+        if (reloadQuietMillis <= 0)
+            return listener;
+
+        getLog().info("Reloading after " + reloadQuietMillis + "ms without changes (at most " + reloadMaxDelayMillis + "ms after the first change)");
+        return new ChangeDebouncer(reloadQuietMillis, reloadMaxDelayMillis, listener, getLog());
+    }
+
+    /**
+     * Stop the thread of a listener returned by {@link #debounce}, dropping the changes it has not delivered yet.
+     *
+     * @param listener the listener, may be null
+     */
+    protected static void stopDebouncing(AbstractFileWatcher.ChangeListener listener)
+    {
+        if (listener instanceof ChangeDebouncer)
+            ((ChangeDebouncer)listener).stop();
+    }
+
+    /**
+     * Try to apply the changes by redefining the classes of the webapp when reload is 'hotswap'.
+     *
+     * @param webapp the webapp
+     * @param changes the changed files
+     * @return true if the changes have been applied and the webapp does not need to be restarted
+     */
+    protected boolean hotSwap(JettyWebAppContext webapp, List<String> changes)
+    {
+        if (!isHotSwapReload() || webapp == null)
+            return false;
+
+        final List<File> classesDirectories = new ArrayList<>();
+        classesDirectories.add(webapp.getClasses());
+        if (webapp.getWebInfLib() != null)
+            classesDirectories.addAll(webapp.getWebInfLib()); // reactor modules are added as directories
+        return new HotSwapper(getLog()).hotSwap(classesDirectories, webapp.getClassLoader(), changes);
+    }
+
+    /**
+     * Apply the changes by invalidating the resource cache of the webapp, when the changed
+     * files are all static resources of its resource directories.
+     *
+     * @param webapp the webapp
+     * @param changes the changed files
+     * @return true if the webapp does not need to be restarted
+     */
+    protected boolean refreshResources(JettyWebAppContext webapp, List<String> changes)
+    {
+        if (webapp == null || !webapp.isCacheResources() || changes == null || changes.isEmpty())
+            return false;
+
+        final List<Path> dirs = new ArrayList<>();
+        for (File dir : webapp.getResourceDirectories())
+            dirs.add(dir.toPath().toAbsolutePath().normalize());
+        for (String change : changes)
+        {
+            final Path path = Paths.get(change).toAbsolutePath().normalize();
+            final Path dir = dirs.stream().filter(path::startsWith).findFirst().orElse(null);
+            // the descriptors in WEB-INF are only read when the webapp starts
+            if (dir == null || STATIC_RESOURCE_EXCLUDE.matcher(dir.relativize(path).toString().replace(File.separatorChar, '/')).matches())
+                return false;
+        }
+        webapp.invalidateResourceCache();
+        getLog().info("Refreshed " + changes.size() + " static resources of " + webapp.getContextPath());
+        return true;
+    }
+
+    /**
+     * @param webapp the webapp
+     * @param project the project of the webapp
+     */
+    protected void configureQuickStartCache(JettyWebAppContext webapp, MavenProject project)
+    {
+        webapp.setQuickStartCacheDirectory(reuseQuickStart ? new File(project.getBuild().getDirectory(), "jetty_quickstart") : null);
+    }
+
+    /**
+     * Apply the overlayMode of the plugin to a webapp, before its overlays are processed.
+     *
+     * @param webApp the webapp
+     */
+    protected void configureOverlayMode(JettyWebAppContext webApp)
+    {
+        if (overlayMode != null)
+            webApp.setOverlayMode(overlayMode);
+        if (webApp.isArchiveOverlays() && !isArchiveOverlaysSupported())
+        {
+            getLog().info("Unpacking the overlays of " + webApp.getContextPath() + ": they cannot be served from their archive by a forked process");
+            webApp.setOverlayMode(JettyWebAppContext.OVERLAY_MODE_UNPACK);
+        }
+    }
+
+    /**
+     * @return false if the webapps are run by another process, which is given the directories of the
+     * overlays and cannot serve them from their archive
+     */
+    protected boolean isArchiveOverlaysSupported()
+    {
+        return true;
+    }
+
+    public boolean isHotSwapReload()
+    {
+        return "hotswap".equalsIgnoreCase(reload);
+    }
+
     public boolean isScanningEnabled()
     {
         return scanIntervalSeconds > 0 && !"manual".equalsIgnoreCase(reload);
@@ -696,6 +919,43 @@ public abstract class AbstractJettyMojo extends AbstractMojo
         }
     }
 
+    /**
+     * Wait for the events of the startup of a forked process, logging the contexts as they
+     * start.
+     *
+     * @param process the forked process
+     * @param channel the channel the process reports its startup to
+     * @throws MojoExecutionException if the process failed to start or exited
+     */
+    protected void awaitForkedStartup(Process process, ReadinessChannel channel) throws MojoExecutionException
+    {
+        long timeoutMs = startupTimeout * 1000L;
+        ReadinessChannel.Result result;
+        try
+        {
+            result = channel.await(process, timeoutMs, getLog()::info);
+        }
+        catch (Exception e)
+        {
+            throw new MojoExecutionException("Failed to follow the startup of the forked process", e);
+        }
+
+        switch (result.getStatus())
+        {
+            case STARTED:
+                getLog().info("Forked process started in " + result.getMessage());
+                break;
+            case TIMED_OUT:
+                getLog().info("Couldn't verify success of child startup within " + timeoutMs + "ms");
+                break;
+            case FAILED:
+                process.destroy();
+                throw new MojoExecutionException("Forked process failed to start: " + result.getMessage());
+            default:
+                throw new MojoExecutionException("Forked process exited before it started, " + result.getMessage());
+        }
+    }
+
     /**
      * Try and find a jetty-web.xml file, using some
      * historical naming conventions if necessary.
@@ -0,0 +1,221 @@
+package org.eclipse.jetty.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * ForkConfiguration
+ *
+ * The configuration of the webapps of a forked jetty process, in a compact versioned binary
+ * format read by the {@link Starter} as a stream.
+ *
+ * The file starts with a magic number and the version of the format, followed by one block
+ * per webapp, then an end marker. A block is a list of the entries of
+ * {@link WebAppPropertyConverter}, each a key and a string or a list of strings. The lists are
+ * prefix compressed: each element is stored as the length of the prefix it shares with the
+ * previous element, followed by the rest of it, so the jars of a local repository mostly cost
+ * their file names. The strings are not split on any separator, any path can be carried.
+ *
+ * Entries with an unknown key, written by a newer plugin, are skipped.
+ */
+public class ForkConfiguration
+{
+    private static final Logger LOG = Log.getLogger(ForkConfiguration.class);
+
+    public static final String FILE_NAME = "fork.config";
+
+    private static final int MAGIC = 0x4A4D5046; //"JMPF"
+    private static final int VERSION = 1;
+
+    private static final int END = 0;
+    private static final int WEBAPP = 1;
+
+    private static final int STRING = 1;
+    private static final int LIST = 2;
+
+    /**
+     * @param file a file
+     * @return true if the file is a fork configuration, false if it is a properties file
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isForkConfiguration(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath())))
+        {
+            return in.readInt() == MAGIC;
+        }
+        catch (EOFException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Configure the webapps described by a fork configuration, while it is read.
+     *
+     * @param file the fork configuration
+     * @param server the Server instance to use if there is a context xml file to apply
+     * @param jettyProperties jetty properties to use if there is a context xml file to apply
+     * @return the configured webapps, in the order they were written
+     * @throws Exception if the file cannot be read or a webapp cannot be configured
+     */
+    public static List<JettyWebAppContext> read(File file, Server server, Map<String, String> jettyProperties)
+        throws Exception
+    {
+        List<JettyWebAppContext> webApps = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()))))
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a fork configuration");
+            int version = in.readUnsignedShort();
+            if (version != VERSION)
+                throw new IOException(file + " has version " + version + " of the fork configuration format, expected " + VERSION);
+
+            while (in.readUnsignedByte() == WEBAPP)
+            {
+                JettyWebAppContext webApp = new JettyWebAppContext();
+                int type;
+                while ((type = in.readUnsignedByte()) != END)
+                {
+                    String key = in.readUTF();
+                    Object value;
+                    if (type == STRING)
+                        value = in.readUTF();
+                    else if (type == LIST)
+                        value = readList(in);
+                    else
+                        throw new IOException("Unknown entry type " + type + " in " + file);
+
+                    if (WebAppPropertyConverter.KEYS.contains(key))
+                        WebAppPropertyConverter.apply(webApp, key, value, server, jettyProperties);
+                    else if (LOG.isDebugEnabled())
+                        LOG.debug("Ignoring the unknown entry {} of {}", key, file);
+                }
+                webApps.add(webApp);
+            }
+        }
+        return webApps;
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException
+    {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        String previous = "";
+        for (int i = 0; i < size; i++)
+        {
+            int shared = in.readUnsignedShort();
+            if (shared > previous.length())
+                throw new IOException("Invalid shared prefix length " + shared);
+            previous = previous.substring(0, shared) + in.readUTF();
+            values.add(previous);
+        }
+        return values;
+    }
+
+    /**
+     * Writes a fork configuration, to a temporary file moved in place when it is closed, unless
+     * a webapp could not be written.
+     */
+    public static class Writer implements Closeable
+    {
+        private final File _file;
+        private final File _tmp;
+        private final DataOutputStream _out;
+        private boolean _failed;
+
+        /**
+         * @param file the file to write
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(File file) throws IOException
+        {
+            _file = file;
+            _tmp = new File(file.getPath() + ".tmp");
+            _out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(_tmp.toPath())));
+            _out.writeInt(MAGIC);
+            _out.writeShort(VERSION);
+        }
+
+        /**
+         * @param webApp the webapp to describe
+         * @param contextXml the optional context xml file related to the webApp
+         * @throws IOException if the webapp cannot be written
+         */
+        public void add(JettyWebAppContext webApp, String contextXml) throws IOException
+        {
+            if (webApp == null)
+                throw new IllegalArgumentException("No webapp");
+
+            _failed = true;
+            _out.writeByte(WEBAPP);
+            for (Map.Entry<String, Object> entry : WebAppPropertyConverter.toEntries(webApp, contextXml).entrySet())
+            {
+                if (entry.getValue() instanceof List)
+                {
+                    _out.writeByte(LIST);
+                    _out.writeUTF(entry.getKey());
+                    writeList(WebAppPropertyConverter.toList(entry.getValue()));
+                }
+                else
+                {
+                    _out.writeByte(STRING);
+                    _out.writeUTF(entry.getKey());
+                    _out.writeUTF((String)entry.getValue());
+                }
+            }
+            _out.writeByte(END);
+            _failed = false;
+        }
+
+        private void writeList(List<String> values) throws IOException
+        {
+            _out.writeInt(values.size());
+            String previous = "";
+            for (String value : values)
+            {
+                int max = Math.min(Math.min(previous.length(), value.length()), 0xFFFF);
+                int shared = 0;
+                while (shared < max && previous.charAt(shared) == value.charAt(shared))
+                {
+                    shared++;
+                }
+                //never split a surrogate pair
+                if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1)))
+                    shared--;
+                _out.writeShort(shared);
+                _out.writeUTF(value.substring(shared));
+                previous = value;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (_failed)
+            {
+                _out.close();
+                Files.deleteIfExists(_tmp.toPath());
+                return;
+            }
+            _out.writeByte(END);
+            _out.close();
+            Files.move(_tmp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package org.eclipse.jetty.maven.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.webapp.Configuration;
+
+/**
+ * This goal runs the webapps of the sub-projects, like <b>run-all</b>, in a forked JVM.
+ * <p>
+ * The webapps are configured in maven as <b>run-all</b> does, without being started, and are
+ * all described in a single fork configuration passed to the forked process, which scans and
+ * starts them. The forked JVM gets its own heap and garbage collector settings from <b>jvmArgs</b>,
+ * isolated from the heap of maven.
+ * <p>
+ * Unlike <b>run-all</b>, this does NOT support the <b>scanIntervalSeconds</b> parameter: the webapps
+ * are deployed only once. Only the contexts that are webapps (sub-projects and war artifacts) are
+ * forked, other context handlers are ignored.
+ * <p>
+ * The <b>stopKey</b>, <b>stopPort</b> configuration elements can be used to control the stopping of the forked process.
+ * By default, this plugin will launch the forked jetty instance and wait for it to complete. By setting the
+ * configuration element <b>waitForChild</b> to <b>false</b>, the plugin will terminate after having forked the
+ * jetty process. In this case you can use the <b>jetty:stop</b> goal to terminate the process.
+ *
+ * Runs the webapps of the sub-projects in a forked JVM
+ */
+@Mojo(
+    name = "run-all-forked",
+    aggregator = true,
+    requiresDependencyResolution = ResolutionScope.RUNTIME
+)
+public class JettyAggregatedRunForkedMojo extends JettyAggregatedRunMojo
+{
+    /**
+     * The target directory
+     */
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true, required = true)
+    protected File target;
+
+    /**
+     * Arbitrary jvm args to pass to the forked process, like its heap and garbage collector settings
+     */
+    @Parameter(property = "jetty.jvmArgs")
+    private String jvmArgs;
+
+    /**
+     * Optional list of jetty properties to put on the command line
+     */
+    @Parameter
+    private String[] jettyProperties;
+
+    @Parameter(defaultValue = "${plugin.artifacts}", readonly = true)
+    private List<Artifact> pluginArtifacts;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+
+    @Parameter(defaultValue = "true")
+    private boolean waitForChild;
+
+    /**
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
+     */
+    @Parameter(defaultValue = "300")
+    private int maxChildChecks;
+
+    /**
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
+     */
+    @Parameter(defaultValue = "100")
+    private long maxChildCheckInterval;
+
+    /**
+     * Extra environment variables to be passed to the forked process
+     */
+    @Parameter
+    private Map<String, String> env = new HashMap<>();
+
+    @Parameter(property = "jetty.javaPath")
+    private String javaPath;
+
+    /**
+     * The forked jetty instance
+     */
+    private Process forkedProcess;
+
+    /**
+     * Whether or not the plugin has explicit slf4j dependencies.
+     */
+    private boolean hasSlf4jDeps;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException
+    {
+        if (scanIntervalSeconds > 0)
+        {
+            getLog().info("Scanning is not supported by the forked webapps");
+            scanIntervalSeconds = 0;
+        }
+        //the forked process is stopped with jetty:stop, not through the lock file
+        useJettyLock = false;
+
+        Runtime.getRuntime().addShutdownHook(new Thread("RunAllForkedShutdown")
+        {
+            @Override
+            public void run()
+            {
+                if (forkedProcess != null && waitForChild)
+                    forkedProcess.destroy();
+            }
+        });
+
+        for (Dependency d : plugin.getPlugin().getDependencies())
+        {
+            if (d.getGroupId().contains("slf4j"))
+            {
+                hasSlf4jDeps = true;
+                break;
+            }
+        }
+
+        super.execute();
+    }
+
+    @Override
+    protected boolean isArchiveOverlaysSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void startJetty() throws MojoExecutionException
+    {
+        //Only configure the webapps, the forked process starts them
+        try
+        {
+            printSystemProperties();
+
+            //do NOT apply the jettyXml configuration - as the jvmArgs may be needed for it to work
+            if (server == null)
+                server = new Server();
+
+            ServerSupport.configureHandlers(server, null);
+            ServerSupport.configureDefaultConfigurationClasses(server);
+            configureWebApplication();
+            if (startMainWebapp)
+                ServerSupport.addWebApplication(server, webApp);
+
+            File config = prepareConfiguration();
+            forkProcess(config);
+        }
+        catch (MojoExecutionException e)
+        {
+            throw e;
+        }
+        catch (InterruptedException e)
+        {
+            if (forkedProcess != null && waitForChild)
+                forkedProcess.destroy();
+
+            throw new MojoExecutionException("Failed to start Jetty within time limit");
+        }
+        catch (Exception e)
+        {
+            if (forkedProcess != null && waitForChild)
+                forkedProcess.destroy();
+
+            throw new MojoExecutionException("Failed to create Jetty process", e);
+        }
+    }
+
+    /**
+     * Describe all the configured webapps in a single fork configuration.
+     *
+     * @return the fork configuration
+     * @throws MojoExecutionException if the configuration cannot be written
+     */
+    public File prepareConfiguration() throws MojoExecutionException
+    {
+        ContextHandlerCollection handlers = ServerSupport.findContextHandlerCollection(server);
+        target.mkdirs();
+        File configFile = new File(target, "fork-all.config");
+        int count = 0;
+        try (ForkConfiguration.Writer writer = new ForkConfiguration.Writer(configFile))
+        {
+            for (Handler handler : handlers.getHandlers())
+            {
+                if (handler instanceof JettyWebAppContext)
+                {
+                    writer.add((JettyWebAppContext)handler, null);
+                    count++;
+                }
+                else
+                    getLog().warn("Not forking " + handler + ", only webapps are forked");
+            }
+        }
+        catch (Exception e)
+        {
+            throw new MojoExecutionException("Prepare webapps configuration", e);
+        }
+        getLog().info("Forking " + count + " webapps");
+        return configFile;
+    }
+
+    private void forkProcess(File config) throws Exception
+    {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(StringUtil.isNotBlank(javaPath) ? javaPath : getJavaBin());
+
+        if (jvmArgs != null)
+        {
+            for (String arg : jvmArgs.split(" "))
+            {
+                if (!"".equals(arg))
+                    cmd.add(arg.trim());
+            }
+        }
+
+        //the http connector of the pom, unless a jetty xml configures it
+        if (httpConnector != null && httpConnector.getPort() > 0)
+            cmd.add("-D" + MavenServerConnector.PORT_SYSPROPERTY + "=" + httpConnector.getPort());
+
+        if (systemProperties != null)
+        {
+            for (SystemProperty prop : systemProperties.getSystemProperties())
+            {
+                if (prop.getName() != null && prop.getValue() != null)
+                    cmd.add("-D" + prop.getName() + "=" + prop.getValue());
+            }
+        }
+
+        cmd.add("-cp");
+        cmd.add(getContainerClassPath());
+        cmd.add(Starter.class.getCanonicalName());
+
+        if (stopPort > 0 && stopKey != null)
+        {
+            cmd.add("--stop-port");
+            cmd.add(Integer.toString(stopPort));
+            cmd.add("--stop-key");
+            cmd.add(stopKey);
+        }
+        if (jettyXml != null)
+        {
+            cmd.add("--jetty-xml");
+            cmd.add(jettyXml);
+        }
+
+        //the configurations of run-all, without annotation scanning unless enabled
+        String[] configurationClasses = (String[])server.getAttribute(Configuration.ATTR);
+        if (configurationClasses != null)
+        {
+            cmd.add("--configuration-classes");
+            cmd.add(String.join(",", configurationClasses));
+        }
+
+        cmd.add("--config");
+        cmd.add(config.getAbsolutePath());
+
+        if (jettyProperties != null)
+            cmd.addAll(Arrays.asList(jettyProperties));
+
+        if (profileStartup)
+        {
+            cmd.add("--startup-profile");
+            cmd.add(new File(target, StartupProfiler.FILE_NAME).getAbsolutePath());
+        }
+
+        //the child reports its startup as it goes, unless waiting for it to finish anyway
+        try (ReadinessChannel readiness = waitForChild ? null : new ReadinessChannel())
+        {
+            if (readiness != null)
+            {
+                cmd.add("--ready-port");
+                cmd.add(Integer.toString(readiness.getPort()));
+                cmd.add("--ready-key");
+                cmd.add(readiness.getKey());
+            }
+            launch(cmd, readiness);
+        }
+    }
+
+    private void launch(List<String> cmd, ReadinessChannel readiness) throws Exception
+    {
+        ProcessBuilder builder = new ProcessBuilder(cmd);
+        builder.directory(project.getBasedir());
+
+        if (getLog().isDebugEnabled())
+            getLog().debug("Forked cli:" + cmd);
+
+        getLog().info("Forked process starting");
+
+        if (!env.isEmpty())
+            builder.environment().putAll(env);
+
+        if (waitForChild)
+        {
+            builder.inheritIO();
+        }
+        else
+        {
+            builder.redirectOutput(new File(target, "jetty.out"));
+            builder.redirectErrorStream(true);
+        }
+
+        forkedProcess = builder.start();
+
+        if (waitForChild)
+        {
+            int exitcode = forkedProcess.waitFor();
+            getLog().info("Forked execution exit: " + exitcode);
+        }
+        else
+        {
+            //just wait until the child has started successfully
+            awaitForkedStartup(forkedProcess, readiness);
+        }
+    }
+
+    private String getContainerClassPath()
+    {
+        StringBuilder classPath = new StringBuilder();
+        for (Artifact artifact : pluginArtifacts)
+        {
+            if ("jar".equals(artifact.getType()))
+            {
+                //ignore slf4j from inside maven
+                if (artifact.getGroupId().contains("slf4j") && !hasSlf4jDeps)
+                    continue;
+                if (classPath.length() > 0)
+                    classPath.append(File.pathSeparator);
+                classPath.append(artifact.getFile().getAbsolutePath());
+            }
+        }
+
+        //the jetty-maven-plugin jar itself, containing the Starter class
+        for (Artifact a : pluginArtifacts)
+        {
+            if (a.getArtifactId().equals(plugin.getArtifactId()))
+            {
+                classPath.append(File.pathSeparator);
+                classPath.append(a.getFile().getAbsolutePath());
+            }
+        }
+        return classPath.toString();
+    }
+}
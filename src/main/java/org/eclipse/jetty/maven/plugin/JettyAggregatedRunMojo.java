@@ -37,17 +37,19 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 import java.util.stream.Collectors;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.execution.MavenSession;
 import org.apache.maven.execution.ProjectDependencyGraph;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -61,19 +63,22 @@ import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.shared.transfer.artifact.DefaultArtifactCoordinate;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
+import org.eclipse.jetty.maven.plugin.utils.AbstractFileWatcher;
 import org.eclipse.jetty.maven.plugin.utils.FilesHelper;
 import org.eclipse.jetty.maven.plugin.utils.MavenProjectHelper;
+import org.eclipse.jetty.maven.plugin.utils.NativeFileWatcher;
 import org.eclipse.jetty.maven.plugin.utils.OverlayUnpacker;
+import org.eclipse.jetty.maven.plugin.utils.ParallelContextStarter;
 import org.eclipse.jetty.maven.plugin.utils.PidUtil;
+import org.eclipse.jetty.maven.plugin.utils.PollingFileWatcher;
 import org.eclipse.jetty.maven.plugin.utils.WebApplicationConfigBuilder;
 import org.eclipse.jetty.maven.plugin.utils.WebApplicationScanBuilder;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ConditionalContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.util.IncludeExcludeSet;
-import org.eclipse.jetty.util.Scanner;
-import org.eclipse.jetty.util.Scanner.BulkListener;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.WebAppContext;
@@ -179,8 +184,11 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
 
     protected Resource originalBaseResource;
 
-    @Parameter(defaultValue = "${session}", required = true, readonly = true)
-    private MavenSession session;
+    /**
+     * The reactor jar projects the webapps depend on, by groupId:artifactId:version, indexed
+     * when the webapps are deployed.
+     */
+    private Map<String, MavenProject> reactorJarProjects = Collections.emptyMap();
 
     /**
      * The project's remote repositories to use for the resolution.
@@ -256,10 +264,59 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
     @Parameter(defaultValue = "30")
     protected int stopWait;
 
+    /**
+     * Number of sub-project webapps started concurrently. If greater than 1 the webapps are
+     * started on a pool of this size once the server is started, instead of one after another
+     * while the server starts, and a summary of their start times is printed.
+     */
+    @Parameter(property = "jetty.startupParallelism", defaultValue = "1")
+    protected int startupParallelism;
+
+    /**
+     * Context paths of the webapps that must be started before the others, in the given
+     * order, when startupParallelism is greater than 1. Optional.
+     */
+    @Parameter
+    protected String[] startFirstContexts;
+
+    /**
+     * How changes in the sub-projects are detected, either 'poll' or 'native'.
+     *
+     * if 'poll' then a single scanner walks the files of all the webapps every scanIntervalSeconds
+     * if 'native' then all the webapps share a single file system watch service, falling back to
+     * polling only for files on file systems that do not emit change events.
+     */
+    @Parameter(property = "jetty.watchMode", defaultValue = "poll")
+    protected String watchMode;
+
+    /**
+     * Scan the webapps for annotations (@WebServlet, ServletContainerInitializers, ...).
+     * Disabled by default; when enabled, the jars and class directories that did not change
+     * since the previous scan are not parsed again.
+     */
+    @Parameter(property = "jetty.annotationScanning", defaultValue = "false")
+    protected boolean annotationScanning;
+
     final WebApplicationScanBuilder scanBuilder = new WebApplicationScanBuilder();
     final WebApplicationConfigBuilder configBuilder = new WebApplicationConfigBuilder("com.polopoly.jetty:jetty-maven-plugin");
 
-    final Map<String, Scanner> scanners = new HashMap<>();
+    AbstractFileWatcher fileWatcher;
+    AbstractFileWatcher.ChangeListener fileWatcherListener;
+
+    /**
+     * The sub-project webapps, deployed once: they keep running, and are restarted on their
+     * own, when the main webapp restarts.
+     */
+    final Map<String, JettyWebAppContext> contexts = new LinkedHashMap<>();
+    final Map<String, MavenProject> webAppProjects = new HashMap<>();
+    boolean webApplicationsDeployed;
+
+    /**
+     * Reverse index from the directories of the reactor modules (the base directory of the
+     * webapps, the output directory of their dependencies) to the module id, used to explain
+     * which module caused a webapp restart.
+     */
+    final Map<Path, String> directoryOwners = new HashMap<>();
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException
@@ -276,6 +333,9 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
 
     @Override
     protected void jettyStarted() {
+        if (isParallelStartup()) {
+            startWebApplications();
+        }
         if (useJettyLock) {
             createLockFile();
 
@@ -297,8 +357,26 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         }
     }
 
+    /**
+     * Stop the file watcher and its debouncer, so that no batch of changes pending before a
+     * redeploy or the stop of jetty is delivered afterwards.
+     */
+    private void stopFileWatcher() throws Exception {
+        if (fileWatcher != null) {
+            fileWatcher.stop();
+            fileWatcher = null;
+        }
+        stopDebouncing(fileWatcherListener);
+        fileWatcherListener = null;
+    }
+
     @Override
     protected void jettyStopped() {
+        try {
+            stopFileWatcher();
+        } catch (Exception e) {
+            getLog().warn("Cannot stop the file watcher", e);
+        }
         if (useJettyLock) {
             removeLockFile();
         }
@@ -337,14 +415,22 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         }
 
         // check reload mechanic
-        if (!"automatic".equalsIgnoreCase(reload) && !"manual".equalsIgnoreCase(reload))
+        if (!"automatic".equalsIgnoreCase(reload) && !"manual".equalsIgnoreCase(reload) && !isHotSwapReload())
         {
-            throw new MojoExecutionException("invalid reload mechanic specified, must be 'automatic' or 'manual'");
+            throw new MojoExecutionException("invalid reload mechanic specified, must be 'automatic', 'manual' or 'hotswap'");
         }
         else
         {
             getLog().info("Reload Mechanic: " + reload);
         }
+        if (!"poll".equalsIgnoreCase(watchMode) && !"native".equalsIgnoreCase(watchMode))
+        {
+            throw new MojoExecutionException("invalid watch mode specified, must be 'poll' or 'native'");
+        }
+        else
+        {
+            getLog().info("Watch Mode: " + watchMode);
+        }
         getLog().info("nonBlocking:" + nonBlocking);
 
         // check the classes to form a classpath with
@@ -374,6 +460,40 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
     {
         server.setStopAtShutdown(true); //as we will normally be stopped with a cntrl-c, ensure server stopped 
         super.finishConfigurationBeforeStart();
+
+        if (isParallelStartup()) {
+            // the server must not start the webapps, they are started by startWebApplications()
+            final ContextHandlerCollection handlers = ServerSupport.findContextHandlerCollection(server);
+            for (JettyWebAppContext context : contexts.values()) {
+                handlers.unmanage(context);
+            }
+        }
+    }
+
+    private boolean isParallelStartup() {
+        return startupParallelism > 1 && !contexts.isEmpty();
+    }
+
+    /**
+     * Start the sub-project webapps concurrently and hand them back to the server,
+     * so that they are stopped with it.
+     */
+    private void startWebApplications() {
+        final ContextHandlerCollection handlers = ServerSupport.findContextHandlerCollection(server);
+        try {
+            final List<ContextHandler> failed = new ParallelContextStarter(startupParallelism, startFirstContexts, getLog())
+                .start(new ArrayList<>(contexts.values()));
+            if (!failed.isEmpty()) {
+                getLog().warn("Webapps not available: " + failed.stream().map(ContextHandler::getContextPath).collect(Collectors.toList()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().warn("Interrupted while starting the webapps");
+        } finally {
+            for (JettyWebAppContext context : contexts.values()) {
+                handlers.manage(context);
+            }
+        }
     }
 
     @Override
@@ -381,7 +501,10 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
     {
         removeAnnotationConfiguration();
 
-        deployWebApplications();
+        if (!webApplicationsDeployed) {
+            deployWebApplications();
+            webApplicationsDeployed = true;
+        }
 
         if (startMainWebapp) {
             super.configureWebApplication();
@@ -422,7 +545,7 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         if (useTestScope && (testClassesDirectory != null))
             webApp.setTestClasses(testClassesDirectory);
 
-        MavenProjectHelper mavenProjectHelper = new MavenProjectHelper(project);
+        MavenProjectHelper mavenProjectHelper = MavenProjectHelper.forSession(session, project);
         List<File> webInfLibs = getWebInfLibArtifacts(project.getArtifacts()).stream()
                                                                              .map(a ->
                                                                              {
@@ -469,10 +592,14 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         }
 
         //process any overlays and the war type artifacts
+        configureOverlayMode(webApp);
+        configureQuickStartCache(webApp, project);
         if  (webApp.isUnpackOverlays()) {
-            List<Overlay> overlays = getOverlays();
-            new OverlayUnpacker(project, webApp, useIntelliJOverlays, getLog())
-                .unpackOverlays(overlays); //this sets up the base resource collection
+            try (StartupProfiler.Phase ignored = webApp.getStartupProfiler().begin("unpack overlays (plugin)")) {
+                List<Overlay> overlays = getOverlays();
+                new OverlayUnpacker(project, webApp, useIntelliJOverlays, getLog())
+                    .unpackOverlays(overlays); //this sets up the base resource collection
+            }
         }
 
         getLog().info("web.xml file = " + webApp.getDescriptor());
@@ -480,6 +607,10 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
     }
 
     private void removeAnnotationConfiguration() {
+        if (annotationScanning) {
+            // the MavenAnnotationConfiguration of the default configurations only parses what changed
+            return;
+        }
         // the AnnotationConfiguration will warn about the same classes defined multiple times
         // and we have plenty of them...so for this mojo we will remove the annotation discovery.
         // the annotations is something specific to Jetty but we normally deploy to tomcat so it
@@ -489,14 +620,27 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         if (configurationClasses != null) {
             final List<String> confClass = new ArrayList<>(Arrays.asList(configurationClasses));
             confClass.remove("org.eclipse.jetty.annotations.AnnotationConfiguration");
+            confClass.remove(MavenAnnotationConfiguration.class.getName());
             server.setAttribute(Configuration.ATTR, confClass.toArray(new String[] {}));
         }
     }
 
     private void deployWebApplications() throws Exception {
-        scanners.clear();
+        stopFileWatcher();
+        if (getScanIntervalSeconds() > 0) {
+            fileWatcher = isNativeWatchMode()
+                ? new NativeFileWatcher(getScanIntervalSeconds(), getLog())
+                : new PollingFileWatcher(getScanIntervalSeconds(), getLog());
+            fileWatcherListener = debounce(this::restartWebApplications);
+            fileWatcher.setListener(fileWatcherListener);
+        }
         Set<String> subprojects = new HashSet<>();
 
+        long rewiringStart = System.nanoTime();
+        reactorJarProjects = indexReactorJarProjects(getProject());
+        long rewiringNanos = System.nanoTime() - rewiringStart;
+        int rewiredWebApps = 0;
+
         final List<String> projectJars = new ArrayList<>();
         for (MavenProject subProject : session.getProjects()) {
             if (subProject.equals(project)) {
@@ -507,28 +651,40 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
             }
         }
         getLog().debug("projectJars " + projectJars);
-        final Map<String, JettyWebAppContext> contextMap = new HashMap<>();
         for (MavenProject subProject : session.getProjects()) {
             if (subProject.equals(project)) {
                 continue;
             }
             final String projectId = subProject.getGroupId() + ":" + subProject.getArtifactId();
             if ("war".equals(subProject.getPackaging()) && !isAnExcludedWebApp(subProject)) {
-                final JettyWebAppContext webAppConfig = configBuilder.configureWebApplication(
-                    contextMap.getOrDefault(projectId, new JettyWebAppContext()),
-                    session,
-                    subProject,
-                    getLog());
-                contextMap.putIfAbsent(projectId, webAppConfig);
+                final JettyWebAppContext webAppConfig = contexts.getOrDefault(projectId, new JettyWebAppContext());
+                webAppConfig.setProfileStartup(profileStartup);
+                final StartupProfiler profiler = webAppConfig.getStartupProfiler();
+                try (StartupProfiler.Phase ignored = profiler.begin("configure webapp (plugin)")) {
+                    configBuilder.configureWebApplication(webAppConfig, session, subProject, getLog());
+                }
+                contexts.putIfAbsent(projectId, webAppConfig);
+                webAppProjects.put(projectId, subProject);
+                directoryOwners.put(subProject.getBasedir().toPath().toAbsolutePath().normalize(), projectId);
                 subprojects.add(webAppConfig.getContextPath());
 
+                configureOverlayMode(webAppConfig);
+                configureQuickStartCache(webAppConfig, subProject);
                 if (webAppConfig.isUnpackOverlays()) {
-                    final List<Overlay> overlays = getOverlays(warPluginInfo, webAppConfig);
-                    new OverlayUnpacker(subProject, webAppConfig, useIntelliJOverlays, getLog())
-                        .unpackOverlays(overlays);
+                    try (StartupProfiler.Phase ignored = profiler.begin("unpack overlays (plugin)")) {
+                        final List<Overlay> overlays = getOverlays(warPluginInfo, webAppConfig);
+                        new OverlayUnpacker(subProject, webAppConfig, useIntelliJOverlays, getLog())
+                            .unpackOverlays(overlays);
+                    }
                 }
 
-                final List<File> allFiles = removeDependencyJars(webAppConfig, subProject);
+                rewiringStart = System.nanoTime();
+                final List<File> allFiles;
+                try (StartupProfiler.Phase ignored = profiler.begin("rewire reactor dependencies (plugin)")) {
+                    allFiles = removeDependencyJars(webAppConfig, subProject);
+                }
+                rewiringNanos += System.nanoTime() - rewiringStart;
+                rewiredWebApps++;
 
                 getLog().info("\n=========================================================================="
                     + "\nInjecting : " + subProject.getName() + "\n\n" +  configBuilder.toInfoString(webAppConfig)
@@ -540,56 +696,108 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
                     final List<File> scanningFiles = new ArrayList<>(allFiles);
                     Optional.ofNullable(webAppConfig.getClasses())
                             .ifPresent(scanningFiles::add);
+                    if (webAppConfig.isCacheResources()) {
+                        scanningFiles.addAll(webAppConfig.getResourceDirectories());
+                    }
                     FilesHelper.removeDuplicates(scanningFiles);
 
                     getLog().debug("Scanning: " + scanningFiles);
 
-                    final Scanner scanner = new Scanner();
-                    scanner.addListener((BulkListener) changes -> {
-                        try {
-                            getLog().info("Detected changes: " + changes);
-
-                            scanners.get(projectId).stop();
-
-                            getLog().info("Stopping webapp " + projectId + " ...");
-                            contextMap.get(projectId).stop();
-
-                            getLog().info("Reconfiguring webapp " + projectId + " ...");
+                    fileWatcher.register(projectId, scanningFiles);
+                }
+            }
+        }
 
-                            final JettyWebAppContext appConfig = configBuilder.configureWebApplication(
-                                contextMap.getOrDefault(projectId, new JettyWebAppContext()),
-                                session,
-                                subProject,
-                                getLog());
-                            removeDependencyJars(appConfig, subProject);
+        getLog().info("Rewired the dependencies of " + rewiredWebApps + " webapps on "
+            + reactorJarProjects.size() + " reactor jar projects in " + TimeUnit.NANOSECONDS.toMillis(rewiringNanos) + "ms");
 
-                            getLog().info("Restarting webapp " + projectId + " ...");
-                            appConfig.start();
-                            scanners.get(projectId).start();
-                            getLog().info("Restart " + projectId + " completed at " + new Date());
-                        } catch (Exception e) {
-                            getLog().error("Error reconfiguring/restarting webapp " + projectId + " after change in watched files", e);
-                        }
-                    });
+        configureWarArtifactsForExtraContextHandlers(subprojects);
+        configureWarArtifactsForConditionalContextHandlers(subprojects);
 
-                    scanner.setReportExistingFilesOnStartup(false);
-                    scanner.setScanInterval(getScanIntervalSeconds());
-                    scanner.setScanDirs(scanningFiles);
-                    //scanner.setRecursive(true);
-                    scanner.setScanDepth(Scanner.MAX_SCAN_DEPTH);
+        if (fileWatcher != null) {
+            getLog().info("Starting " + watchMode + " file watcher at interval of " + getScanIntervalSeconds() + " seconds.");
+            fileWatcher.start();
+        }
+    }
 
-                    getLog().debug("Scanning: " + scanner.getScannables());
+    /**
+     * Restart, in a single pass, exactly the webapps whose watched files changed: all of them
+     * are stopped first, then reconfigured and started again.
+     *
+     * @param changes the changed files, by webapp project id
+     */
+    private void restartWebApplications(final Map<String, List<String>> changes) {
+        changes.keySet().removeIf(projectId -> refreshResources(contexts.get(projectId), changes.get(projectId)));
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (isHotSwapReload()) {
+            changes.keySet().removeIf(projectId -> hotSwap(contexts.get(projectId), changes.get(projectId)));
+            if (changes.isEmpty()) {
+                return;
+            }
+        }
+        final StringBuilder report = new StringBuilder();
+        report.append("Detected changes affecting ").append(changes.size()).append(" of ")
+            .append(contexts.size()).append(" webapps:");
+        for (Map.Entry<String, List<String>> entry : changes.entrySet()) {
+            report.append("\n  ").append(entry.getKey()).append(" <- ").append(describeChanges(entry.getValue()));
+        }
+        getLog().info(report.toString());
 
-                    scanner.start();
-                    scanners.put(projectId, scanner);
-                }
+        final List<String> stopped = new ArrayList<>();
+        for (String projectId : changes.keySet()) {
+            fileWatcher.pause(projectId);
+            try {
+                getLog().info("Stopping webapp " + projectId + " ...");
+                contexts.get(projectId).stop();
+                stopped.add(projectId);
+            } catch (Exception e) {
+                getLog().error("Error stopping webapp " + projectId + " after change in watched files", e);
+                fileWatcher.resume(projectId);
             }
         }
+        for (String projectId : stopped) {
+            try {
+                getLog().info("Reconfiguring webapp " + projectId + " ...");
+                final MavenProject subProject = webAppProjects.get(projectId);
+                final JettyWebAppContext appConfig = configBuilder.configureWebApplication(
+                    contexts.get(projectId),
+                    session,
+                    subProject,
+                    getLog());
+                removeDependencyJars(appConfig, subProject);
+
+                getLog().info("Restarting webapp " + projectId + " ...");
+                appConfig.start();
+            } catch (Exception e) {
+                getLog().error("Error reconfiguring/restarting webapp " + projectId + " after change in watched files", e);
+            } finally {
+                fileWatcher.resume(projectId);
+            }
+        }
+        getLog().info("Restart of " + stopped + " completed at " + new Date());
+    }
 
-        configureWarArtifactsForExtraContextHandlers(subprojects);
-        configureWarArtifactsForConditionalContextHandlers(subprojects);
+    /**
+     * @param changes the changed files of a webapp
+     * @return the reactor modules owning the changed files, or the files themselves when they
+     * do not belong to a dependency module
+     */
+    private String describeChanges(final List<String> changes) {
+        final Set<String> reasons = new LinkedHashSet<>();
+        for (String change : changes) {
+            String owner = null;
+            for (Path p = new File(change).toPath().toAbsolutePath().normalize(); p != null && owner == null; p = p.getParent()) {
+                owner = directoryOwners.get(p);
+            }
+            reasons.add(owner != null ? "module " + owner : change);
+        }
+        return String.join(", ", reasons);
+    }
 
-        getLog().info("Starting scanner at interval of " + getScanIntervalSeconds() + " seconds.");
+    private boolean isNativeWatchMode() {
+        return "native".equalsIgnoreCase(watchMode);
     }
 
     @Override
@@ -660,6 +868,13 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
 
         scanner.addFile(project.getFile().toPath());
 
+        //the cached static resources are refreshed when their directories change
+        if (webApp.isCacheResources())
+        {
+            for (File f : webApp.getResourceDirectories())
+                scanner.addDirectory(f.toPath());
+        }
+
         //handle the extra scan patterns
         if (scanTargetPatterns != null)
         {
@@ -676,20 +891,7 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
             IncludeExcludeSet<PathMatcher, Path> includeExcludeSet = scanner.addDirectory(p);
 
             if (scanTestClassesPattern != null)
-            {
-                for (String s : scanTestClassesPattern.getExcludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludeSet.exclude(p.getFileSystem().getPathMatcher(s));
-                }
-                for (String s : scanTestClassesPattern.getIncludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludeSet.include(p.getFileSystem().getPathMatcher(s));
-                }
-            }
+                scanTestClassesPattern.configureIncludesExcludeSet(p, includeExcludeSet);
         }
 
         if (webApp.getClasses() != null && webApp.getClasses().exists())
@@ -697,21 +899,7 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
             Path p = webApp.getClasses().toPath();
             IncludeExcludeSet<PathMatcher, Path> includeExcludes = scanner.addDirectory(p);
             if (scanClassesPattern != null)
-            {
-                for (String s : scanClassesPattern.getExcludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludes.exclude(p.getFileSystem().getPathMatcher(s));
-                }
-
-                for (String s : scanClassesPattern.getIncludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludes.include(p.getFileSystem().getPathMatcher(s));
-                }
-            }
+                scanClassesPattern.configureIncludesExcludeSet(p, includeExcludes);
         }
 
         if (webApp.getWebInfLib() != null)
@@ -736,6 +924,9 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
 
         getLog().debug("Reconfiguring webapp ...");
 
+        //the projects of the session are indexed again only when a pom changed
+        if (reconfigureScanner)
+            MavenProjectHelper.invalidate(session);
         checkPomConfiguration();
         configureWebApplication();
 
@@ -962,11 +1153,13 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         Set<Artifact> artifacts = subProject.getArtifacts();
 
         for (Artifact artifact : artifacts) {
-            MavenProject artifactProject = getLocalDownstreamProjectForDependency(artifact, getProject());
+            MavenProject artifactProject = getLocalDownstreamProjectForDependency(artifact);
             if (artifactProject != null) {
                 final File file = new File(artifactProject.getBuild().getOutputDirectory());
                 if (file.exists()) {
                     dependencyOutputLocations.add(file);
+                    directoryOwners.put(file.toPath().toAbsolutePath().normalize(),
+                        artifactProject.getGroupId() + ":" + artifactProject.getArtifactId());
                     excludedFiles.add(artifact.getFile());
                 } else {
                     getLog().debug("Dependency " + file.getAbsolutePath() + " does not exists!");
@@ -1051,24 +1244,27 @@ public class JettyAggregatedRunMojo extends AbstractJettyMojo
         });
     }
 
-    private MavenProject getLocalDownstreamProjectForDependency(final Artifact artifact,
-                                                                final MavenProject topProject)
-    {
-        ProjectDependencyGraph projectDependencyGraph = session.getProjectDependencyGraph();
-        List<MavenProject> downstreamProjects = projectDependencyGraph.getDownstreamProjects(topProject, true);
+    private MavenProject getLocalDownstreamProjectForDependency(final Artifact artifact) {
+        return reactorJarProjects.get(gav(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+    }
 
-        for (MavenProject mavenProject : downstreamProjects) {
+    /**
+     * @return the jar projects downstream of the top project, by groupId:artifactId:version
+     */
+    private Map<String, MavenProject> indexReactorJarProjects(final MavenProject topProject) {
+        final ProjectDependencyGraph projectDependencyGraph = session.getProjectDependencyGraph();
+        final Map<String, MavenProject> index = new HashMap<>();
+        for (MavenProject mavenProject : projectDependencyGraph.getDownstreamProjects(topProject, true)) {
             if (mavenProject.getPackaging().equals("jar")) {
-                if (artifact.getArtifactId().equals(mavenProject.getArtifactId()) &&
-                    artifact.getGroupId().equals(mavenProject.getGroupId()) &&
-                    artifact.getVersion().equals(mavenProject.getVersion())) {
-
-                    return mavenProject;
-                }
+                index.putIfAbsent(gav(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion()),
+                    mavenProject);
             }
         }
+        return Collections.unmodifiableMap(index);
+    }
 
-        return null;
+    private static String gav(final String groupId, final String artifactId, final String version) {
+        return groupId + ":" + artifactId + ":" + version;
     }
 
     private void addWebApplication(WebAppContext webapp) throws Exception {
@@ -19,30 +19,20 @@
 package org.eclipse.jetty.maven.plugin;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -58,6 +48,9 @@ import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.shared.transfer.artifact.DefaultArtifactCoordinate;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
+import org.eclipse.jetty.maven.plugin.utils.DirectorySync;
+import org.eclipse.jetty.maven.plugin.utils.JettyHomeCache;
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.TypeUtil;
@@ -108,6 +101,13 @@ public class JettyRunDistro extends JettyRunMojo
     @Parameter
     private File jettyHome;
 
+    /**
+     * The directory the jetty-home distributions are unpacked to when jettyHome is not
+     * supplied, once per checksum of the distribution, to be reused by the following builds.
+     */
+    @Parameter(property = "jetty.homeCache", defaultValue = "${settings.localRepository}/.jetty-home-cache")
+    private File jettyHomeCache;
+
     /**
      * Optional jetty.base dir
      */
@@ -139,9 +139,6 @@ public class JettyRunDistro extends JettyRunMojo
     @Parameter
     private String[] jettyProperties;
 
-    @Parameter(defaultValue = "${session}", required = true, readonly = true)
-    private MavenSession session;
-
     /**
      * The project's remote repositories to use for the resolution.
      */
@@ -161,15 +158,15 @@ public class JettyRunDistro extends JettyRunMojo
     private boolean waitForChild;
 
     /**
-     * Max number of times to try checking if the
-     * child has started successfully.
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
      */
     @Parameter(defaultValue = "10")
     private int maxChildChecks;
 
     /**
-     * Millisecs to wait between each
-     * check to see if the child started successfully.
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
      */
     @Parameter(defaultValue = "100")
     private long maxChildCheckInterval;
@@ -178,9 +175,7 @@ public class JettyRunDistro extends JettyRunMojo
 
     private List<Dependency> libExtJars;
 
-    private Random random;
-
-    private Path tokenFile;
+    private ReadinessChannel readiness;
 
     @Parameter(property = "jetty.javaPath")
     private String javaPath;
@@ -191,7 +186,6 @@ public class JettyRunDistro extends JettyRunMojo
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException
     {
-        random = new Random();
         List<Dependency> pdeps = plugin.getPlugin().getDependencies();
         if (pdeps != null && !pdeps.isEmpty())
         {
@@ -260,25 +254,28 @@ public class JettyRunDistro extends JettyRunMojo
             else
             {
                 //just wait until the child has started successfully
-                int attempts = maxChildChecks;
-                while (!Files.exists(tokenFile) && attempts > 0)
-                {
-                    Thread.sleep(maxChildCheckInterval);
-                    --attempts;
-                }
-                if (attempts <= 0)
-                    getLog().info("Couldn't verify success of child startup");
+                awaitForkedStartup(process, readiness);
             }
         }
+        catch (MojoExecutionException e)
+        {
+            throw e;
+        }
         catch (Exception e)
         {
             throw new MojoExecutionException("Failed to start Jetty", e);
         }
+        finally
+        {
+            if (readiness != null)
+                readiness.close();
+        }
     }
 
     /**
      * If jetty home does not exist, download it and
-     * unpack to build dir.
+     * unpack it to the jetty home cache, or to the build dir
+     * if the cache cannot be written.
      *
      * @throws Exception if jetty distribution cannot be found neither downloaded
      */
@@ -288,10 +285,19 @@ public class JettyRunDistro extends JettyRunMojo
         {
             //no jetty home, download from repo and unpack it. Get the same version as the plugin
             Artifact jettyHomeArtifact = resolveArtifact(JETTY_HOME_GROUPID, JETTY_HOME_ARTIFACTID, pluginVersion, "zip");
-            JarResource res = (JarResource)JarResource.newJarResource(Resource.newResource(jettyHomeArtifact.getFile()));
-            res.copyTo(target);
-            //zip will unpack to target/jetty-home-<VERSION>
-            jettyHome = new File(target, JETTY_HOME_ARTIFACTID + "-" + pluginVersion);
+            //zip will unpack to jetty-home-<VERSION>
+            String directoryName = JETTY_HOME_ARTIFACTID + "-" + pluginVersion;
+            try
+            {
+                jettyHome = new JettyHomeCache(jettyHomeCache).unpack(jettyHomeArtifact.getFile(), directoryName);
+            }
+            catch (IOException e)
+            {
+                getLog().warn("Cannot use the jetty home cache " + jettyHomeCache + ", unpacking to " + target + ": " + e);
+                JarResource res = (JarResource)JarResource.newJarResource(Resource.newResource(jettyHomeArtifact.getFile()));
+                res.copyTo(target);
+                jettyHome = new File(target, directoryName);
+            }
         }
         else
         {
@@ -339,111 +345,89 @@ public class JettyRunDistro extends JettyRunMojo
         if (jettyBase != null && !jettyBase.exists())
             throw new IllegalStateException(jettyBase.getAbsolutePath() + " does not exist");
 
+        long start = System.nanoTime();
         targetBase = new File(target, "jetty-base");
-        Path targetBasePath = targetBase.toPath();
-        if (Files.exists(targetBasePath))
-            IO.delete(targetBase);
-
-        targetBase.mkdirs();
+        //only write what changed since the previous run
+        DirectorySync sync = new DirectorySync(targetBase.toPath());
 
         if (jettyBase != null)
         {
-            Path jettyBasePath = jettyBase.toPath();
-
-            //copy the existing jetty base
-            Files.walkFileTree(jettyBasePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
-                Integer.MAX_VALUE,
-                new SimpleFileVisitor<Path>()
-                {
-                    /**
-                     * @see java.nio.file.SimpleFileVisitor#preVisitDirectory(java.lang.Object, java.nio.file.attribute.BasicFileAttributes)
-                     */
-                    @Override
-                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
-                    {
-                        Path targetDir = targetBasePath.resolve(jettyBasePath.relativize(dir));
-                        try
-                        {
-                            Files.copy(dir, targetDir);
-                        }
-                        catch (FileAlreadyExistsException e)
-                        {
-                            if (!Files.isDirectory(targetDir)) //ignore attempt to recreate dir
-                                throw e;
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    /**
-                     * @see java.nio.file.SimpleFileVisitor#visitFile(java.lang.Object, java.nio.file.attribute.BasicFileAttributes)
-                     */
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
-                    {
-                        if (contextXml != null && Files.isSameFile(Paths.get(contextXml), file))
-                            return FileVisitResult.CONTINUE; //skip copying the context xml file
-                        Files.copy(file, targetBasePath.resolve(jettyBasePath.relativize(file)));
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
+            //copy the existing jetty base, but not the context xml file
+            Path contextXmlPath = contextXml != null ? Paths.get(contextXml) : null;
+            sync.copyTree(jettyBase.toPath(), file -> isSameFile(contextXmlPath, file));
         }
 
         //make the jetty base structure
-        Path modulesPath = Files.createDirectories(targetBasePath.resolve("modules"));
-        Path etcPath = Files.createDirectories(targetBasePath.resolve("etc"));
-        Path libPath = Files.createDirectories(targetBasePath.resolve("lib"));
-        Path webappPath = Files.createDirectories(targetBasePath.resolve("webapps"));
-        Path mavenLibPath = Files.createDirectories(libPath.resolve("maven"));
+        sync.directory("modules");
+        sync.directory("etc");
+        sync.directory("webapps");
+        sync.directory("lib/maven");
 
         //copy in the jetty-maven-plugin jar
         URI thisJar = TypeUtil.getLocationOfClass(this.getClass());
         if (thisJar == null)
             throw new IllegalStateException("Can't find jar for jetty-maven-plugin");
 
-        try (InputStream jarStream = thisJar.toURL().openStream();
-             FileOutputStream fileStream = new FileOutputStream(mavenLibPath.resolve("plugin.jar").toFile()))
+        if ("file".equals(thisJar.getScheme()) && Files.isRegularFile(Paths.get(thisJar)))
         {
-            IO.copy(jarStream, fileStream);
+            sync.copy(Paths.get(thisJar), "lib/maven/plugin.jar", true);
         }
-
-        //copy in the maven.xml webapp file
-        try (InputStream mavenXmlStream = getClass().getClassLoader().getResourceAsStream("maven.xml");
-             FileOutputStream fileStream = new FileOutputStream(webappPath.resolve("maven.xml").toFile()))
+        else
         {
-            IO.copy(mavenXmlStream, fileStream);
+            try (InputStream jarStream = thisJar.toURL().openStream())
+            {
+                sync.write(IO.readBytes(jarStream), "lib/maven/plugin.jar");
+            }
         }
 
+        //copy in the maven.xml webapp file
+        sync.write(readResource("maven.xml"), "webapps/maven.xml");
+
         //copy in the maven.mod file
-        try (InputStream mavenModStream = getClass().getClassLoader().getResourceAsStream("maven.mod");
-             FileOutputStream fileStream = new FileOutputStream(modulesPath.resolve("maven.mod").toFile()))
-        {
-            IO.copy(mavenModStream, fileStream);
-        }
+        sync.write(readResource("maven.mod"), "modules/maven.mod");
 
         //copy in the jetty-maven.xml file
-        try (InputStream jettyMavenStream = getClass().getClassLoader().getResourceAsStream("jetty-maven.xml");
-             FileOutputStream fileStream = new FileOutputStream(etcPath.resolve("jetty-maven.xml").toFile()))
-        {
-            IO.copy(jettyMavenStream, fileStream);
-        }
+        sync.write(readResource("jetty-maven.xml"), "etc/jetty-maven.xml");
 
-        //if there were plugin dependencies, copy them into lib/ext
+        //if there were plugin dependencies, link or copy them into lib/ext
         if (libExtJars != null && !libExtJars.isEmpty())
         {
-            Path libExtPath = Files.createDirectories(libPath.resolve("ext"));
+            sync.directory("lib/ext");
             for (Dependency d : libExtJars)
             {
                 Artifact a = resolveArtifact(d.getGroupId(), d.getArtifactId(), d.getVersion(), d.getType());
-                try (InputStream jarStream = new FileInputStream(a.getFile());
-                     FileOutputStream fileStream = new FileOutputStream(libExtPath.resolve(d.getGroupId() + "." + d.getArtifactId() + "-" + d.getVersion() + "." + d.getType()).toFile()))
-                {
-                    IO.copy(jarStream, fileStream);
-                }
+                sync.copy(a.getFile().toPath(), "lib/ext/" + d.getGroupId() + "." + d.getArtifactId() + "-" + d.getVersion() + "." + d.getType(), true);
             }
         }
 
         //create properties file that describes the webapp
-        createPropertiesFile(etcPath.resolve("maven.props").toFile());
+        createPropertiesFile(sync.keep("etc/maven.props").toFile());
+
+        //remove what the previous run left and is not needed anymore
+        sync.deleteOthers();
+        getLog().info("Synchronized " + targetBase + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms: " + sync.getSummary());
+    }
+
+    private static boolean isSameFile(Path path, Path file)
+    {
+        try
+        {
+            return path != null && Files.isSameFile(path, file);
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private byte[] readResource(String name) throws IOException
+    {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name))
+        {
+            if (in == null)
+                throw new IllegalStateException("Can't find " + name + " in jetty-maven-plugin");
+            return IO.readBytes(in);
+        }
     }
 
     /**
@@ -463,8 +447,9 @@ public class JettyRunDistro extends JettyRunMojo
      * run jetty from a distro.
      *
      * @return the command configured
+     * @throws IOException if the process cannot be given a channel to report its startup
      */
-    public ProcessBuilder configureCommand()
+    public ProcessBuilder configureCommand() throws IOException
     {
         List<String> cmd = new ArrayList<>();
         if (StringUtil.isNotBlank(javaPath))
@@ -520,9 +505,13 @@ public class JettyRunDistro extends JettyRunMojo
             }
         }
 
-        //existence of this file signals process started
-        tokenFile = target.toPath().resolve(createToken() + ".txt");
-        cmd.add("jetty.token.file=" + tokenFile.toAbsolutePath().toString());
+        //the child reports its startup as it goes, unless waiting for it to finish anyway
+        if (!waitForChild)
+        {
+            readiness = new ReadinessChannel();
+            cmd.add("jetty.ready.port=" + readiness.getPort());
+            cmd.add("jetty.ready.key=" + readiness.getKey());
+        }
 
         ProcessBuilder builder = new ProcessBuilder(cmd);
         builder.directory(targetBase);
@@ -534,6 +523,12 @@ public class JettyRunDistro extends JettyRunMojo
         return builder;
     }
 
+    @Override
+    protected boolean isArchiveOverlaysSupported()
+    {
+        return false;
+    }
+
     /**
      * @see org.eclipse.jetty.maven.plugin.AbstractJettyMojo#startScanner()
      */
@@ -569,9 +564,4 @@ public class JettyRunDistro extends JettyRunMojo
     {
         //do nothing
     }
-
-    private String createToken()
-    {
-        return Long.toString(random.nextLong() ^ System.currentTimeMillis(), 36).toUpperCase(Locale.ENGLISH);
-    }
 }
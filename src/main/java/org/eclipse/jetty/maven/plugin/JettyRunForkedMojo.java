@@ -19,18 +19,22 @@
 package org.eclipse.jetty.maven.plugin;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Dependency;
@@ -43,6 +47,8 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.eclipse.jetty.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
+import org.eclipse.jetty.maven.plugin.utils.WarmFork;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.resource.Resource;
@@ -104,15 +110,15 @@ public class JettyRunForkedMojo extends JettyRunMojo
     private boolean waitForChild;
 
     /**
-     * Max number of times to try checking if the
-     * child has started successfully.
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
      */
     @Parameter(alias = "maxStartupLines", defaultValue = "50")
     private int maxChildChecks;
 
     /**
-     * Millisecs to wait between each
-     * check to see if the child started successfully.
+     * No longer used: the child reports its startup as it goes,
+     * the wait is bounded by startupTimeout.
      */
     @Parameter(defaultValue = "100")
     private long maxChildCheckInterval;
@@ -128,11 +134,6 @@ public class JettyRunForkedMojo extends JettyRunMojo
      */
     private Process forkedProcess;
 
-    /**
-     * Random number generator
-     */
-    private Random random;
-
     /**
      * Whether or not the plugin has explicit slf4j dependencies.
      * The maven environment will always have slf4j on the classpath,
@@ -144,6 +145,23 @@ public class JettyRunForkedMojo extends JettyRunMojo
     @Parameter(property = "jetty.javaPath")
     private String javaPath;
 
+    /**
+     * Keep the forked process alive when maven exits, and redeploy the webapp into it on the
+     * next run-forked instead of starting a new JVM. The webapp configuration is sent to the
+     * process over a loopback socket, with a key only readable from the state file of the
+     * process, kept in ~/.jetty-maven-plugin/warm-forks so that a clean does not lose the process.
+     * A new process is forked when its command line changes.
+     * Implies waitForChild false, so stopPort and stopKey are required: use jetty:stop to stop the process.
+     */
+    @Parameter(property = "jetty.warmFork", defaultValue = "false")
+    private boolean warmFork;
+
+    /**
+     * The loopback port the warm forked process listens on for redeploys, 0 for any free port.
+     */
+    @Parameter(property = "jetty.warmForkPort", defaultValue = "0")
+    private int warmForkPort;
+
     /**
      * ShutdownThread
      */
@@ -170,8 +188,14 @@ public class JettyRunForkedMojo extends JettyRunMojo
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException
     {
+        if (warmFork && (stopPort <= 0 || stopKey == null))
+            throw new MojoExecutionException("warmFork requires stopPort and stopKey, the forked process outlives maven and can only be stopped with jetty:stop");
+        if (warmFork && waitForChild)
+        {
+            getLog().info("Warm fork: not waiting for the forked process");
+            waitForChild = false;
+        }
         Runtime.getRuntime().addShutdownHook(new ShutdownThread());
-        random = new Random();
 
         List<Dependency> deps = plugin.getPlugin().getDependencies();
         for (Dependency d : deps)
@@ -191,6 +215,7 @@ public class JettyRunForkedMojo extends JettyRunMojo
     {
         //Only do enough setup to be able to produce a quickstart-web.xml file to
         //pass onto the forked process to run     
+        ReadinessChannel readiness = null;
 
         try
         {
@@ -243,7 +268,7 @@ public class JettyRunForkedMojo extends JettyRunMojo
             webApp.start(); //just enough to generate the quickstart
 
             //save config of the webapp BEFORE we stop
-            File props = prepareConfiguration();
+            File config = prepareConfiguration();
 
             webApp.stop();
 
@@ -291,12 +316,8 @@ public class JettyRunForkedMojo extends JettyRunMojo
                 cmd.add(jettyXml);
             }
 
-            cmd.add("--props");
-            cmd.add(props.getAbsolutePath());
-
-            Path tokenFile = target.toPath().resolve(createToken() + ".txt");
-            cmd.add("--token");
-            cmd.add(tokenFile.toAbsolutePath().toString());
+            cmd.add("--config");
+            cmd.add(config.getAbsolutePath());
 
             if (jettyProperties != null)
             {
@@ -306,6 +327,35 @@ public class JettyRunForkedMojo extends JettyRunMojo
                 }
             }
 
+            if (warmFork)
+            {
+                String forkId = getForkId(cmd);
+                if (redeployToWarmFork(config, forkId))
+                    return;
+                cmd.add("--redeploy-port");
+                cmd.add(Integer.toString(warmForkPort));
+                cmd.add("--redeploy-file");
+                cmd.add(WarmFork.getStateFile(project.getBasedir()).getAbsolutePath());
+                cmd.add("--redeploy-id");
+                cmd.add(forkId);
+            }
+
+            if (profileStartup)
+            {
+                cmd.add("--startup-profile");
+                cmd.add(new File(target, StartupProfiler.FILE_NAME).getAbsolutePath());
+            }
+
+            //the child reports its startup as it goes, unless waiting for it to finish anyway
+            if (!waitForChild)
+            {
+                readiness = new ReadinessChannel();
+                cmd.add("--ready-port");
+                cmd.add(Integer.toString(readiness.getPort()));
+                cmd.add("--ready-key");
+                cmd.add(readiness.getKey());
+            }
+
             ProcessBuilder builder = new ProcessBuilder(cmd);
             builder.directory(project.getBasedir());
 
@@ -340,16 +390,13 @@ public class JettyRunForkedMojo extends JettyRunMojo
             else
             {
                 //just wait until the child has started successfully
-                int attempts = maxChildChecks;
-                while (!Files.exists(tokenFile) && attempts > 0)
-                {
-                    Thread.sleep(maxChildCheckInterval);
-                    --attempts;
-                }
-                if (attempts <= 0)
-                    getLog().info("Couldn't verify success of child startup");
+                awaitForkedStartup(forkedProcess, readiness);
             }
         }
+        catch (MojoExecutionException ex)
+        {
+            throw ex;
+        }
         catch (InterruptedException ex)
         {
             if (forkedProcess != null && waitForChild)
@@ -364,6 +411,85 @@ public class JettyRunForkedMojo extends JettyRunMojo
 
             throw new MojoExecutionException("Failed to create Jetty process", ex);
         }
+        finally
+        {
+            if (readiness != null)
+                readiness.close();
+        }
+    }
+
+    /**
+     * Redeploy the webapp into the warm forked process of a previous build, if it is still
+     * running with the same command line. A process with another command line is stopped.
+     *
+     * @param config the fork configuration describing the webapp
+     * @param forkId the id of the command line of the process to fork
+     * @return true if the webapp was redeployed, false if a process must be forked
+     * @throws MojoExecutionException if the process failed to redeploy the webapp or did not reply in time
+     * @throws IOException if the state file cannot be located
+     */
+    private boolean redeployToWarmFork(File config, String forkId) throws MojoExecutionException, IOException
+    {
+        File stateFile = WarmFork.getStateFile(project.getBasedir());
+        WarmFork.State state = WarmFork.readState(stateFile);
+        if (state == null)
+            return false;
+
+        if (!forkId.equals(state.getId()))
+        {
+            getLog().info("Forked process command line changed, stopping the warm forked process");
+            try
+            {
+                WarmFork.send(state, WarmFork.STOP, null);
+            }
+            catch (ConnectException e)
+            {
+                getLog().debug("No warm forked process to stop", e);
+            }
+            catch (IOException e)
+            {
+                throw new MojoExecutionException("Failed to stop the warm forked process on port " + state.getPort() + ": " + e.getMessage(), e);
+            }
+            stateFile.delete();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+            WarmFork.send(state, WarmFork.REDEPLOY, config.getAbsolutePath());
+        }
+        catch (ConnectException e)
+        {
+            getLog().info("No warm forked process on port " + state.getPort() + ", forking a new one");
+            stateFile.delete();
+            return false;
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException("Failed to redeploy into the warm forked process: " + e.getMessage(), e);
+        }
+        getLog().info("Redeployed into the warm forked process in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return true;
+    }
+
+    /**
+     * @return a hash of the command line of the forked process, without what changes on every build
+     */
+    private String getForkId(List<String> cmd) throws NoSuchAlgorithmException
+    {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        for (String arg : cmd)
+        {
+            digest.update(arg.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+        }
+        for (Map.Entry<String, String> e : new TreeMap<>(env).entrySet())
+        {
+            digest.update((e.getKey() + "=" + e.getValue()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+        }
+        return String.format("%040x", new BigInteger(1, digest.digest()));
     }
 
     public List<String> getProvidedJars() throws MojoExecutionException
@@ -398,9 +524,12 @@ public class JettyRunForkedMojo extends JettyRunMojo
         try
         {
             //work out the configuration based on what is configured in the pom
-            File propsFile = new File(target, "fork.props");
-            WebAppPropertyConverter.toProperties(webApp, propsFile, contextXml);
-            return propsFile;
+            File configFile = new File(target, ForkConfiguration.FILE_NAME);
+            try (ForkConfiguration.Writer writer = new ForkConfiguration.Writer(configFile))
+            {
+                writer.add(webApp, contextXml);
+            }
+            return configFile;
         }
         catch (Exception e)
         {
@@ -408,6 +537,12 @@ public class JettyRunForkedMojo extends JettyRunMojo
         }
     }
 
+    @Override
+    protected boolean isArchiveOverlaysSupported()
+    {
+        return false;
+    }
+
     @Override
     public boolean isPluginArtifact(Artifact artifact)
     {
@@ -510,9 +645,4 @@ public class JettyRunForkedMojo extends JettyRunMojo
         }
         return ret.toString();
     }
-
-    private String createToken()
-    {
-        return Long.toString(random.nextLong() ^ System.currentTimeMillis(), 36).toUpperCase(Locale.ENGLISH);
-    }
 }
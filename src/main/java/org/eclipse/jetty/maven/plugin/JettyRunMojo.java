@@ -182,9 +182,9 @@ public class JettyRunMojo extends AbstractJettyMojo
         }
 
         // check reload mechanic
-        if (!"automatic".equalsIgnoreCase(reload) && !"manual".equalsIgnoreCase(reload))
+        if (!"automatic".equalsIgnoreCase(reload) && !"manual".equalsIgnoreCase(reload) && !isHotSwapReload())
         {
-            throw new MojoExecutionException("invalid reload mechanic specified, must be 'automatic' or 'manual'");
+            throw new MojoExecutionException("invalid reload mechanic specified, must be 'automatic', 'manual' or 'hotswap'");
         }
         else
         {
@@ -253,14 +253,18 @@ public class JettyRunMojo extends AbstractJettyMojo
         if (useTestScope && (testClassesDirectory != null))
             webApp.setTestClasses(testClassesDirectory);
 
-        MavenProjectHelper mavenProjectHelper = new MavenProjectHelper(project);
-        List<File> webInfLibs = getWebInfLibArtifacts(project.getArtifacts()).stream()
-            .map(a ->
-            {
-                Path p = mavenProjectHelper.getArtifactPath(a);
-                getLog().debug("Artifact " + a.getId() + " loaded from " + p + " added to WEB-INF/lib");
-                return p.toFile();
-            }).collect(Collectors.toList());
+        MavenProjectHelper mavenProjectHelper = MavenProjectHelper.forSession(session, project);
+        List<File> webInfLibs;
+        try (StartupProfiler.Phase ignored = webApp.getStartupProfiler().begin("resolve WEB-INF/lib (plugin)"))
+        {
+            webInfLibs = getWebInfLibArtifacts(project.getArtifacts()).stream()
+                .map(a ->
+                {
+                    Path p = mavenProjectHelper.getArtifactPath(a);
+                    getLog().debug("Artifact " + a.getId() + " loaded from " + p + " added to WEB-INF/lib");
+                    return p.toFile();
+                }).collect(Collectors.toList());
+        }
         getLog().debug("WEB-INF/lib initialized (at root)");
         webApp.setWebInfLib(webInfLibs);
 
@@ -299,10 +303,14 @@ public class JettyRunMojo extends AbstractJettyMojo
         }
 
         //process any overlays and the war type artifacts
+        configureOverlayMode(webApp);
+        configureQuickStartCache(webApp, project);
         if (webApp.isUnpackOverlays()) {
-            List<Overlay> overlays = getOverlays();
-            new OverlayUnpacker(project, webApp, useIntelliJOverlays, getLog())
-                .unpackOverlays(overlays); //this sets up the base resource collection
+            try (StartupProfiler.Phase ignored = webApp.getStartupProfiler().begin("unpack overlays (plugin)")) {
+                List<Overlay> overlays = getOverlays();
+                new OverlayUnpacker(project, webApp, useIntelliJOverlays, getLog())
+                    .unpackOverlays(overlays); //this sets up the base resource collection
+            }
         }
 
         getLog().info("web.xml file = " + webApp.getDescriptor());
@@ -376,6 +384,13 @@ public class JettyRunMojo extends AbstractJettyMojo
         }
         
         scanner.addFile(project.getFile().toPath());
+
+        //the cached static resources are refreshed when their directories change
+        if (webApp.isCacheResources())
+        {
+            for (File f : webApp.getResourceDirectories())
+                scanner.addDirectory(f.toPath());
+        }
         
         //handle the extra scan patterns
         if (scanTargetPatterns != null)
@@ -393,20 +408,7 @@ public class JettyRunMojo extends AbstractJettyMojo
             IncludeExcludeSet<PathMatcher, Path> includeExcludeSet = scanner.addDirectory(p);
 
             if (scanTestClassesPattern != null)
-            {
-                for (String s : scanTestClassesPattern.getExcludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludeSet.exclude(p.getFileSystem().getPathMatcher(s));
-                }
-                for (String s : scanTestClassesPattern.getIncludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludeSet.include(p.getFileSystem().getPathMatcher(s));
-                }
-            }
+                scanTestClassesPattern.configureIncludesExcludeSet(p, includeExcludeSet);
         }
 
         if (webApp.getClasses() != null && webApp.getClasses().exists())
@@ -414,21 +416,7 @@ public class JettyRunMojo extends AbstractJettyMojo
             Path p = webApp.getClasses().toPath();
             IncludeExcludeSet<PathMatcher, Path> includeExcludes = scanner.addDirectory(p);
             if (scanClassesPattern != null)
-            {
-                for (String s : scanClassesPattern.getExcludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludes.exclude(p.getFileSystem().getPathMatcher(s));
-                }
-
-                for (String s : scanClassesPattern.getIncludes())
-                {
-                    if (!s.startsWith("glob:"))
-                        s = "glob:" + s;
-                    includeExcludes.include(p.getFileSystem().getPathMatcher(s));
-                }
-            }
+                scanClassesPattern.configureIncludesExcludeSet(p, includeExcludes);
         }
 
         if (webApp.getWebInfLib() != null)
@@ -453,6 +441,9 @@ public class JettyRunMojo extends AbstractJettyMojo
 
         getLog().debug("Reconfiguring webapp ...");
 
+        //the projects of the session are indexed again only when a pom changed
+        if (reconfigureScanner)
+            MavenProjectHelper.invalidate(session);
         checkPomConfiguration();
         configureWebApplication();
 
@@ -22,15 +22,26 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventListener;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
 
 import org.eclipse.jetty.plus.webapp.EnvConfiguration;
 import org.eclipse.jetty.quickstart.PreconfigureDescriptorProcessor;
@@ -65,24 +76,45 @@ public class JettyWebAppContext extends WebAppContext
     private static final String WEB_INF_CLASSES_PREFIX = "/WEB-INF/classes";
     private static final String WEB_INF_LIB_PREFIX = "/WEB-INF/lib";
 
+    /**
+     * Max number of lookups kept by the resource cache, which is cleared when full.
+     */
+    private static final int MAX_CACHED_RESOURCES = 10000;
+
+    private static final String QUICKSTART_WEB_XML = "quickstart-web.xml";
+    private static final String QUICKSTART_FINGERPRINT_SUFFIX = ".fingerprint";
+
     public static final String[] MINIMUM_CONFIGURATION_CLASSES = {
         "org.eclipse.jetty.maven.plugin.MavenWebInfConfiguration",
         "org.eclipse.jetty.webapp.WebXmlConfiguration",
-        "org.eclipse.jetty.webapp.MetaInfConfiguration",
+        "org.eclipse.jetty.maven.plugin.MavenMetaInfConfiguration",
         "org.eclipse.jetty.webapp.FragmentConfiguration",
         "org.eclipse.jetty.webapp.JettyWebXmlConfiguration"
     };
     public static final String[] DEFAULT_CONFIGURATION_CLASSES = {
         "org.eclipse.jetty.maven.plugin.MavenWebInfConfiguration",
         "org.eclipse.jetty.webapp.WebXmlConfiguration",
-        "org.eclipse.jetty.webapp.MetaInfConfiguration",
+        "org.eclipse.jetty.maven.plugin.MavenMetaInfConfiguration",
         "org.eclipse.jetty.webapp.FragmentConfiguration",
         "org.eclipse.jetty.plus.webapp.EnvConfiguration",
         "org.eclipse.jetty.plus.webapp.PlusConfiguration",
-        "org.eclipse.jetty.annotations.AnnotationConfiguration",
+        "org.eclipse.jetty.maven.plugin.MavenAnnotationConfiguration",
         "org.eclipse.jetty.webapp.JettyWebXmlConfiguration"
     };
 
+    /**
+     * The overlays are unpacked to target/jetty_overlays.
+     */
+    public static final String OVERLAY_MODE_UNPACK = "unpack";
+    /**
+     * The overlays are served straight from their archive, without unpacking them.
+     */
+    public static final String OVERLAY_MODE_ARCHIVE = "archive";
+    /**
+     * The overlays are not applied.
+     */
+    public static final String OVERLAY_MODE_NONE = "none";
+
     public static final String[] QUICKSTART_CONFIGURATION_CLASSES = {
         "org.eclipse.jetty.maven.plugin.MavenQuickStartConfiguration",
         "org.eclipse.jetty.plus.webapp.EnvConfiguration",
@@ -102,6 +134,11 @@ public class JettyWebAppContext extends WebAppContext
     private String _originAttribute;
     private boolean _generateOrigin;
     private boolean unpackOverlays = true;
+    private boolean archiveOverlays = false;
+    private boolean _cacheResources = false;
+    private final Map<String, Optional<Resource>> _resourceCache = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> _resourcePathsCache = new ConcurrentHashMap<>();
+    private final StartupProfiler _startupProfiler = new StartupProfiler();
 
     /**
      * Set the "org.eclipse.jetty.server.webapp.ContainerIncludeJarPattern" with a pattern for matching jars on
@@ -123,6 +160,9 @@ public class JettyWebAppContext extends WebAppContext
     private boolean _baseAppFirst = true;
 
     private boolean _isGenerateQuickStart;
+    private File _quickStartCacheDirectory;
+    private String[] _fullConfigurationClasses;
+    private String _quickStartFingerprint;
     private PreconfigureDescriptorProcessor _preconfigProcessor;
 
     private ArtifactData warArtifact;
@@ -135,6 +175,32 @@ public class JettyWebAppContext extends WebAppContext
         super.setCopyWebInf(false);
     }
 
+    /**
+     * @param profileStartup true to also measure each step of the configurations of the webapp,
+     * which are then wrapped by the profiler
+     */
+    public void setProfileStartup(boolean profileStartup)
+    {
+        if (profileStartup)
+            addBean(_startupProfiler);
+        else
+            removeBean(_startupProfiler);
+    }
+
+    public boolean isProfileStartup()
+    {
+        return contains(_startupProfiler);
+    }
+
+    /**
+     * @return the profiler of the startup of the webapp, also measuring what the plugin does
+     * to configure it
+     */
+    public StartupProfiler getStartupProfiler()
+    {
+        return _startupProfiler;
+    }
+
     public void setContainerIncludeJarPattern(String pattern)
     {
         _containerIncludeJarPattern = pattern;
@@ -246,6 +312,91 @@ public class JettyWebAppContext extends WebAppContext
         this.unpackOverlays = unpackOverlays;
     }
 
+    /**
+     * @return true if the overlays are served from their archive instead of being unpacked
+     */
+    public boolean isArchiveOverlays() {
+        return unpackOverlays && archiveOverlays;
+    }
+
+    public String getOverlayMode() {
+        if (!unpackOverlays) {
+            return OVERLAY_MODE_NONE;
+        }
+        return archiveOverlays ? OVERLAY_MODE_ARCHIVE : OVERLAY_MODE_UNPACK;
+    }
+
+    /**
+     * @param overlayMode how the overlays are applied: {@value #OVERLAY_MODE_UNPACK},
+     *                    {@value #OVERLAY_MODE_ARCHIVE} or {@value #OVERLAY_MODE_NONE}
+     */
+    public void setOverlayMode(final String overlayMode) {
+        if (OVERLAY_MODE_UNPACK.equalsIgnoreCase(overlayMode)) {
+            unpackOverlays = true;
+            archiveOverlays = false;
+        } else if (OVERLAY_MODE_ARCHIVE.equalsIgnoreCase(overlayMode)) {
+            unpackOverlays = true;
+            archiveOverlays = true;
+        } else if (OVERLAY_MODE_NONE.equalsIgnoreCase(overlayMode)) {
+            unpackOverlays = false;
+        } else {
+            throw new IllegalArgumentException("Invalid overlay mode '" + overlayMode + "', expected "
+                + OVERLAY_MODE_UNPACK + ", " + OVERLAY_MODE_ARCHIVE + " or " + OVERLAY_MODE_NONE);
+        }
+    }
+
+    /**
+     * @param cacheResources true to remember the resource found for each uri, including the
+     * uris with no resource, instead of probing every resource directory on each lookup, and
+     * the listing of each directory
+     */
+    public void setCacheResources(boolean cacheResources)
+    {
+        _cacheResources = cacheResources;
+        _resourceCache.clear();
+        _resourcePathsCache.clear();
+    }
+
+    public boolean isCacheResources()
+    {
+        return _cacheResources;
+    }
+
+    /**
+     * Forget the cached resource lookups and listings, after a change in the resource directories.
+     */
+    public void invalidateResourceCache()
+    {
+        _resourceCache.clear();
+        _resourcePathsCache.clear();
+    }
+
+    /**
+     * @return the directories of the base resource, where the static resources are looked up
+     */
+    public List<File> getResourceDirectories()
+    {
+        List<File> dirs = new ArrayList<>();
+        Resource base = getBaseResource();
+        if (base == null)
+            return dirs;
+        Resource[] resources = base instanceof ResourceCollection ? ((ResourceCollection)base).getResources() : new Resource[]{base};
+        for (Resource r : resources)
+        {
+            try
+            {
+                File f = r.getFile();
+                if (f != null && f.isDirectory())
+                    dirs.add(f);
+            }
+            catch (IOException e)
+            {
+                LOG.ignore(e);
+            }
+        }
+        return dirs;
+    }
+
     public List<Overlay> getOverlays()
     {
         return _overlays;
@@ -314,6 +465,29 @@ public class JettyWebAppContext extends WebAppContext
         return _isGenerateQuickStart;
     }
 
+    /**
+     * @param dir the directory where a quickstart descriptor is generated on the first start
+     * and reused by the following starts until the classpath or a descriptor changes,
+     * null to always start the webapp fully
+     */
+    public void setQuickStartCacheDirectory(File dir)
+    {
+        _quickStartCacheDirectory = dir;
+    }
+
+    public File getQuickStartCacheDirectory()
+    {
+        return _quickStartCacheDirectory;
+    }
+
+    /**
+     * @return true if the quickstart descriptor is generated by this start, before starting the webapp
+     */
+    private boolean isGenerateCachedQuickStart()
+    {
+        return _quickStartFingerprint != null;
+    }
+
     public ArtifactData getWarArtifact() {
         return warArtifact;
     }
@@ -338,12 +512,153 @@ public class JettyWebAppContext extends WebAppContext
         }
         else
         {
+            if (isGenerateCachedQuickStart())
+            {
+                try (StartupProfiler.Phase ignored = _startupProfiler.begin("generate quickstart descriptor"))
+                {
+                    generateCachedQuickStart();
+                }
+            }
+
             if (LOG.isDebugEnabled())
             {
                 LOG.debug("Calling full start on webapp");
             }
-            super.startWebapp();
+            try (StartupProfiler.Phase ignored = _startupProfiler.begin("start servlets and filters"))
+            {
+                super.startWebapp();
+            }
+        }
+    }
+
+    @Override
+    protected void startContext() throws Exception
+    {
+        //what the configurations and the webapp start do not: mostly the resolution of the descriptors and annotations
+        try (StartupProfiler.Phase ignored = _startupProfiler.begin("resolve descriptors and annotations"))
+        {
+            super.startContext();
+        }
+        finally
+        {
+            //the lookups done while starting may predate the last change of the resource directories
+            invalidateResourceCache();
+        }
+    }
+
+    @Override
+    public void setBaseResource(Resource base)
+    {
+        super.setBaseResource(base);
+        //the configurations add resource directories while starting, like the META-INF/resources of the jars
+        invalidateResourceCache();
+    }
+
+    @Override
+    public void callContextInitialized(ServletContextListener l, ServletContextEvent e)
+    {
+        try (StartupProfiler.Phase ignored = _startupProfiler.begin("listener " + l.getClass().getSimpleName()))
+        {
+            super.callContextInitialized(l, e);
+        }
+    }
+
+    /**
+     * Use the cached quickstart descriptor if it was generated for the same classpath and
+     * descriptors, or else prepare to generate it while starting.
+     */
+    private void prepareCachedQuickStart() throws Exception
+    {
+        if (_fullConfigurationClasses == null)
+            _fullConfigurationClasses = getConfigurationClasses();
+        _quickStartFingerprint = null;
+
+        //the descriptor refers to the temp directory (e.g. for the jsp scratch directory), which
+        //must not change between the starts, and is not created by the quickstart configuration
+        if (getTempDirectory() == null)
+            setTempDirectory(new File(_quickStartCacheDirectory, "tmp"));
+        getTempDirectory().mkdirs();
+
+        File descriptor = new File(_quickStartCacheDirectory, QUICKSTART_WEB_XML);
+        File fingerprintFile = new File(_quickStartCacheDirectory, QUICKSTART_WEB_XML + QUICKSTART_FINGERPRINT_SUFFIX);
+        String fingerprint = getQuickStartFingerprint();
+        String previous = fingerprintFile.isFile() ? new String(Files.readAllBytes(fingerprintFile.toPath()), StandardCharsets.UTF_8).trim() : null;
+        setQuickStartWebDescriptor(Resource.newResource(descriptor));
+        if (descriptor.isFile() && fingerprint.equals(previous))
+        {
+            LOG.info("Reusing quickstart descriptor {}", descriptor);
+            setConfigurationClasses(QUICKSTART_CONFIGURATION_CLASSES);
+            return;
+        }
+
+        LOG.info("Classpath or descriptors changed, generating quickstart descriptor {}", descriptor);
+        Files.deleteIfExists(fingerprintFile.toPath());
+        setConfigurationClasses(_fullConfigurationClasses);
+        _quickStartFingerprint = fingerprint;
+        _preconfigProcessor = new PreconfigureDescriptorProcessor();
+        getMetaData().addDescriptorProcessor(_preconfigProcessor);
+    }
+
+    private void generateCachedQuickStart() throws Exception
+    {
+        File descriptor = getQuickStartWebDescriptor().getFile();
+        descriptor.getParentFile().mkdirs();
+        QuickStartDescriptorGenerator generator = new QuickStartDescriptorGenerator(this, _preconfigProcessor.getXML(), _originAttribute, _generateOrigin);
+        try (FileOutputStream fos = new FileOutputStream(descriptor))
+        {
+            generator.generateQuickStartWebXml(fos);
+        }
+        //the fingerprint is only written once the descriptor is complete
+        Files.write(new File(descriptor.getPath() + QUICKSTART_FINGERPRINT_SUFFIX).toPath(), _quickStartFingerprint.getBytes(StandardCharsets.UTF_8));
+        getMetaData().removeDescriptorProcessor(_preconfigProcessor);
+        _preconfigProcessor = null;
+        _quickStartFingerprint = null;
+    }
+
+    /**
+     * @return a hash of what the quickstart descriptor depends on: the configurations, the
+     * descriptors, the jars of the classpath and the class files of its directories
+     */
+    private String getQuickStartFingerprint() throws Exception
+    {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        StringBuilder buf = new StringBuilder();
+        buf.append(getContextPath()).append('\n');
+        buf.append(String.join(",", _fullConfigurationClasses)).append('\n');
+        List<String> descriptors = new ArrayList<>();
+        descriptors.add(getDescriptor());
+        descriptors.add(getDefaultsDescriptor());
+        descriptors.add(getJettyEnvXml());
+        descriptors.addAll(getOverrideDescriptors());
+        for (String d : descriptors)
+        {
+            if (d != null)
+                buf.append(d).append('\t').append(Resource.newResource(d).lastModified()).append('\n');
+        }
+        digest.update(buf.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (File f : _classpathFiles)
+        {
+            buf.setLength(0);
+            buf.append(f.getAbsolutePath());
+            if (f.isDirectory())
+            {
+                //only the names: new classes may bring new annotations, changed classes rarely do
+                Path root = f.toPath();
+                try (Stream<Path> paths = Files.walk(root))
+                {
+                    paths.filter(p -> p.toString().endsWith(".class")).map(p -> root.relativize(p).toString()).sorted()
+                        .forEach(p -> buf.append('\t').append(p));
+                }
+            }
+            else
+            {
+                buf.append('\t').append(f.length()).append('\t').append(f.lastModified());
+            }
+            buf.append('\n');
+            digest.update(buf.toString().getBytes(StandardCharsets.UTF_8));
         }
+        return String.format("%040x", new BigInteger(1, digest.digest()));
     }
 
     @Override
@@ -407,11 +722,31 @@ public class JettyWebAppContext extends WebAppContext
                 _webInfJarMap.put(fileName, file);
         }
 
+        _resourceCache.clear();
+        _resourcePathsCache.clear();
+
+        if (_quickStartCacheDirectory != null && !isGenerateQuickStart())
+        {
+            try (StartupProfiler.Phase ignored = _startupProfiler.begin("check quickstart cache"))
+            {
+                prepareCachedQuickStart();
+            }
+        }
+        else if (_fullConfigurationClasses != null)
+        {
+            //the cached quickstart descriptor is not used anymore
+            setConfigurationClasses(_fullConfigurationClasses);
+            _fullConfigurationClasses = null;
+        }
+
         //check for CDI
         initCDI();
 
         // CHECK setShutdown(false);
-        super.doStart();
+        try (StartupProfiler.Phase ignored = _startupProfiler.begin("start context"))
+        {
+            super.doStart();
+        }
     }
 
     @Override
@@ -422,6 +757,8 @@ public class JettyWebAppContext extends WebAppContext
         //inject configurations with config from maven plugin    
         for (Configuration c : getConfigurations())
         {
+            while (c instanceof Configuration.Wrapper)
+                c = ((Configuration.Wrapper)c).getWrapped();
             if (c instanceof EnvConfiguration && getJettyEnvXml() != null)
                 ((EnvConfiguration)c).setJettyEnvXml(Resource.toURL(new File(getJettyEnvXml())));
         }
@@ -430,6 +767,8 @@ public class JettyWebAppContext extends WebAppContext
     @Override
     public void doStop() throws Exception
     {
+        _startupProfiler.clear();
+
         if (_classpathFiles != null)
             _classpathFiles.clear();
         _classpathFiles = null;
@@ -448,6 +787,8 @@ public class JettyWebAppContext extends WebAppContext
         Thread.sleep(500L);
 
         super.doStop();
+        _resourceCache.clear();
+        _resourcePathsCache.clear();
 
         //remove all listeners, servlets and filters. This is because we will re-apply
         //any context xml file, which means they would potentially be added multiple times.
@@ -460,6 +801,24 @@ public class JettyWebAppContext extends WebAppContext
 
     @Override
     public Resource getResource(String uriInContext) throws MalformedURLException
+    {
+        if (!_cacheResources || uriInContext == null || !(isStarting() || isStarted()))
+            return findResource(uriInContext);
+
+        Optional<Resource> cached = _resourceCache.get(uriInContext);
+        if (cached == null)
+        {
+            if (_resourceCache.size() >= MAX_CACHED_RESOURCES)
+                _resourceCache.clear();
+            //a missing resource is remembered as no resource, so it is not looked up again
+            Resource resource = findResource(uriInContext);
+            cached = resource != null && resource.exists() ? Optional.of(resource) : Optional.empty();
+            _resourceCache.put(uriInContext, cached);
+        }
+        return cached.orElse(null);
+    }
+
+    private Resource findResource(String uriInContext) throws MalformedURLException
     {
         Resource resource = null;
         // Try to get regular resource
@@ -535,6 +894,23 @@ public class JettyWebAppContext extends WebAppContext
 
     @Override
     public Set<String> getResourcePaths(String path)
+    {
+        if (!_cacheResources || path == null || !(isStarting() || isStarted()))
+            return findResourcePaths(path);
+
+        Set<String> cached = _resourcePathsCache.get(path);
+        if (cached == null)
+        {
+            if (_resourcePathsCache.size() >= MAX_CACHED_RESOURCES)
+                _resourcePathsCache.clear();
+            //the listing is sorted once, and shared by all the callers
+            cached = Collections.unmodifiableSet(findResourcePaths(path));
+            _resourcePathsCache.put(path, cached);
+        }
+        return cached;
+    }
+
+    private Set<String> findResourcePaths(String path)
     {
         // Try to get regular resource paths - this will get appropriate paths from any overlaid wars etc
         Set<String> paths = super.getResourcePaths(path);
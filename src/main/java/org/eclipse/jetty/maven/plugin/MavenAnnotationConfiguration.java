@@ -0,0 +1,290 @@
+package org.eclipse.jetty.maven.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.annotations.AnnotationParser;
+import org.eclipse.jetty.maven.plugin.utils.AnnotationScanCache;
+import org.eclipse.jetty.maven.plugin.utils.AnnotationScanCache.Event;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+/**
+ * MavenAnnotationConfiguration
+ *
+ * AnnotationConfiguration that does not parse again the jars and class directories which did
+ * not change since they were last parsed: what the parser reported to the handlers is recorded
+ * in an {@link AnnotationScanCache} stored in the temp directory of the webapp, and replayed.
+ */
+public class MavenAnnotationConfiguration extends AnnotationConfiguration
+{
+    private static final Logger LOG = Log.getLogger(MavenAnnotationConfiguration.class);
+
+    private AnnotationScanCache _scanCache;
+    private final AtomicInteger _parsed = new AtomicInteger();
+    private final AtomicInteger _replayed = new AtomicInteger();
+
+    @Override
+    protected void scanForAnnotations(WebAppContext context) throws Exception
+    {
+        _scanCache = new AnnotationScanCache(context.getTempDirectory());
+        _parsed.set(0);
+        _replayed.set(0);
+        long start = System.nanoTime();
+        try
+        {
+            super.scanForAnnotations(context);
+            _scanCache.save();
+            LOG.info("Annotation scan of {}: {} locations parsed, {} unchanged, in {}ms",
+                context.getContextPath(), _parsed.get(), _replayed.get(), (System.nanoTime() - start) / 1_000_000);
+        }
+        finally
+        {
+            _scanCache = null;
+        }
+    }
+
+    @Override
+    protected AnnotationParser createAnnotationParser(int javaPlatform)
+    {
+        if (_scanCache == null)
+            return super.createAnnotationParser(javaPlatform);
+        return new CachingAnnotationParser(javaPlatform, _scanCache);
+    }
+
+    /**
+     * AnnotationParser recording the events of each jar or class directory it parses, and
+     * replaying them instead of parsing when the jar or directory did not change.
+     *
+     * Only the annotated methods and fields are recorded: the handlers of the
+     * AnnotationConfiguration ignore the others.
+     */
+    private class CachingAnnotationParser extends AnnotationParser
+    {
+        private final int _javaPlatform;
+        private final AnnotationScanCache _cache;
+
+        CachingAnnotationParser(int javaPlatform, AnnotationScanCache cache)
+        {
+            super(javaPlatform);
+            _javaPlatform = javaPlatform;
+            _cache = cache;
+        }
+
+        @Override
+        public void parse(Set<? extends Handler> handlers, Resource r) throws Exception
+        {
+            File location = r == null ? null : r.getFile();
+            if (location == null || !location.exists())
+            {
+                super.parse(handlers, r);
+                return;
+            }
+
+            List<Event> events = _cache.get(location, _javaPlatform);
+            if (events != null)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Replaying the annotation scan of {}", r);
+                replay(handlers, r, location, events, true);
+                _replayed.incrementAndGet();
+                return;
+            }
+
+            Recorder recorder = new Recorder(r, location);
+            super.parse(Collections.singleton(recorder), r);
+            _cache.put(location, _javaPlatform, recorder._events);
+            _parsed.incrementAndGet();
+            //the classes have been registered as parsed by the parsing itself
+            replay(handlers, r, location, recorder._events, false);
+        }
+
+        private void replay(Set<? extends Handler> handlers, Resource r, File location, List<Event> events, boolean addParsedClasses) throws Exception
+        {
+            Map<String, Resource> containers = new HashMap<>();
+            ClassInfo classInfo = null;
+            MethodInfo methodInfo = null;
+            FieldInfo fieldInfo = null;
+            for (Event e : events)
+            {
+                switch (e.getKind())
+                {
+                    case Event.CLASS:
+                        classInfo = new ClassInfo(getContainer(containers, r, location, e.getString(0)), e.getString(1),
+                            e.getInt(0), e.getInt(1), e.getString(2), e.getString(3), e.getStrings(4, e.getInt(2)));
+                        if (addParsedClasses)
+                            addParsedClass(classInfo.getClassName(), classInfo.getContainingResource());
+                        for (Handler h : handlers)
+                            h.handle(classInfo);
+                        break;
+                    case Event.METHOD:
+                        methodInfo = new MethodInfo(classInfo, e.getString(0), e.getInt(0), e.getString(1), e.getString(2), e.getStrings(3, e.getInt(1)));
+                        for (Handler h : handlers)
+                            h.handle(methodInfo);
+                        break;
+                    case Event.FIELD:
+                        fieldInfo = new FieldInfo(classInfo, e.getString(0), e.getInt(0), e.getString(1), e.getString(2), e.getValue());
+                        for (Handler h : handlers)
+                            h.handle(fieldInfo);
+                        break;
+                    case Event.CLASS_ANNOTATION:
+                        for (Handler h : handlers)
+                            h.handle(classInfo, e.getString(0));
+                        break;
+                    case Event.METHOD_ANNOTATION:
+                        for (Handler h : handlers)
+                            h.handle(methodInfo, e.getString(0));
+                        break;
+                    case Event.FIELD_ANNOTATION:
+                        for (Handler h : handlers)
+                            h.handle(fieldInfo, e.getString(0));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown annotation scan event " + e.getKind());
+                }
+            }
+        }
+
+        /**
+         * @return the resource a class was found in: the parsed resource itself (a jar), a
+         * directory below it (the package directory of a class directory), or any other resource
+         */
+        private Resource getContainer(Map<String, Resource> containers, Resource r, File location, String container) throws Exception
+        {
+            if (container == null)
+                return null;
+            if (container.isEmpty())
+                return r;
+            Resource resource = containers.get(container);
+            if (resource == null)
+            {
+                if (container.startsWith("/"))
+                    resource = Resource.newResource(new File(location, container.substring(1)));
+                else
+                    resource = Resource.newResource(container);
+                containers.put(container, resource);
+            }
+            return resource;
+        }
+    }
+
+    /**
+     * Handler recording the events of the parsing of a resource.
+     */
+    private static class Recorder extends AnnotationParser.AbstractHandler
+    {
+        private final Resource _resource;
+        private final String _location;
+        private final List<Event> _events = new ArrayList<>();
+        private AnnotationParser.MethodInfo _recordedMethod;
+        private AnnotationParser.FieldInfo _recordedField;
+
+        Recorder(Resource resource, File location)
+        {
+            _resource = resource;
+            _location = location.getAbsolutePath();
+        }
+
+        @Override
+        public void handle(AnnotationParser.ClassInfo classInfo)
+        {
+            String[] interfaces = classInfo.getInterfaces();
+            List<String> strings = new ArrayList<>();
+            strings.add(getContainer(classInfo.getContainingResource()));
+            strings.add(classInfo.getClassName());
+            strings.add(classInfo.getSignature());
+            strings.add(classInfo.getSuperName());
+            if (interfaces != null)
+                Collections.addAll(strings, interfaces);
+            addEvent(Event.CLASS,
+                new int[]{classInfo.getVersion(), classInfo.getAccess(), interfaces == null ? -1 : interfaces.length},
+                strings.toArray(new String[0]),
+                null);
+        }
+
+        @Override
+        public void handle(AnnotationParser.ClassInfo classInfo, String annotation)
+        {
+            addEvent(Event.CLASS_ANNOTATION, new int[0], new String[]{annotation}, null);
+        }
+
+        @Override
+        public void handle(AnnotationParser.MethodInfo methodInfo, String annotation)
+        {
+            if (_recordedMethod != methodInfo)
+            {
+                //the method is only recorded when it is annotated
+                String[] exceptions = methodInfo.getExceptions();
+                List<String> strings = new ArrayList<>();
+                strings.add(methodInfo.getMethodName());
+                strings.add(methodInfo.getDesc());
+                strings.add(methodInfo.getSignature());
+                if (exceptions != null)
+                    Collections.addAll(strings, exceptions);
+                addEvent(Event.METHOD,
+                    new int[]{methodInfo.getAccess(), exceptions == null ? -1 : exceptions.length},
+                    strings.toArray(new String[0]),
+                    null);
+                _recordedMethod = methodInfo;
+            }
+            addEvent(Event.METHOD_ANNOTATION, new int[0], new String[]{annotation}, null);
+        }
+
+        @Override
+        public void handle(AnnotationParser.FieldInfo fieldInfo, String annotation)
+        {
+            if (_recordedField != fieldInfo)
+            {
+                //the field is only recorded when it is annotated
+                addEvent(Event.FIELD,
+                    new int[]{fieldInfo.getAccess()},
+                    new String[]{fieldInfo.getFieldName(), fieldInfo.getFieldType(), fieldInfo.getSignature()},
+                    fieldInfo.getValue());
+                _recordedField = fieldInfo;
+            }
+            addEvent(Event.FIELD_ANNOTATION, new int[0], new String[]{annotation}, null);
+        }
+
+        private void addEvent(int kind, int[] ints, String[] strings, Object value)
+        {
+            _events.add(new Event(kind, ints, strings, value));
+        }
+
+        /**
+         * @return "" for the parsed resource, "/path" for a directory below it, or the uri of the resource
+         */
+        private String getContainer(Resource container)
+        {
+            if (container == null)
+                return null;
+            if (container.equals(_resource))
+                return "";
+            try
+            {
+                File file = container.getFile();
+                if (file != null)
+                {
+                    String path = file.getAbsolutePath();
+                    if (path.equals(_location))
+                        return "";
+                    if (path.startsWith(_location + File.separator))
+                        return "/" + path.substring(_location.length() + 1).replace(File.separatorChar, '/');
+                }
+            }
+            catch (Exception e)
+            {
+                LOG.ignore(e);
+            }
+            return container.getURI().toString();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.eclipse.jetty.maven.plugin;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.EmptyResource;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.webapp.MetaInfConfiguration;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+/**
+ * MavenMetaInfConfiguration
+ *
+ * MetaInfConfiguration looking for the META-INF/resources, web-fragment.xml and tlds of the
+ * WEB-INF/lib jars concurrently, on a fork-join pool.
+ *
+ * The jars are opened concurrently to fill caches of what they contain, then the caches are
+ * merged into the context sequentially in the order of the jars, by the MetaInfConfiguration
+ * itself. The context attributes are made ordered collections, so that the fragments (and so
+ * the input of the fragment ordering) and the resources are in the order of the jars whatever
+ * the order the jars were opened in.
+ */
+public class MavenMetaInfConfiguration extends MetaInfConfiguration
+{
+    private static final Logger LOG = Log.getLogger(MavenMetaInfConfiguration.class);
+
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static ForkJoinPool sharedPool;
+
+    /**
+     * @return the pool opening the jars, shared by all the webapps
+     */
+    private static synchronized ForkJoinPool getSharedPool()
+    {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool(POOL_SIZE);
+        return sharedPool;
+    }
+
+    @Override
+    public void scanJars(WebAppContext context, Collection<Resource> jars, boolean useCaches, List<String> scanTypes) throws Exception
+    {
+        makeAttributesOrdered(context);
+
+        //the container jars are looked at through the caches of the server, and are few
+        if (useCaches || jars == null || jars.size() < 2)
+        {
+            super.scanJars(context, jars, useCaches, scanTypes);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Resource> resources = new ArrayList<>(jars);
+        boolean scanResources = scanTypes.contains(METAINF_RESOURCES);
+        boolean scanFragments = scanTypes.contains(METAINF_FRAGMENTS);
+        boolean scanTlds = scanTypes.contains(METAINF_TLDS);
+        ConcurrentHashMap<Resource, Resource> resourceCache = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Resource, Resource> fragmentCache = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Resource, Collection<URL>> tldCache = new ConcurrentHashMap<>();
+
+        List<Callable<Long>> tasks = new ArrayList<>(resources.size());
+        for (Resource jar : resources)
+        {
+            tasks.add(() ->
+            {
+                long jarStart = System.nanoTime();
+                if (scanResources)
+                    resourceCache.putIfAbsent(jar, findResourcesDir(jar));
+                if (scanFragments)
+                    fragmentCache.putIfAbsent(jar, findFragment(jar));
+                if (scanTlds)
+                    tldCache.putIfAbsent(jar, findTlds(jar));
+                return System.nanoTime() - jarStart;
+            });
+        }
+        List<Future<Long>> futures = getSharedPool().invokeAll(tasks);
+        long[] timings = new long[resources.size()];
+        for (int i = 0; i < futures.size(); i++)
+        {
+            try
+            {
+                timings[i] = futures.get(i).get();
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception)
+                    throw (Exception)e.getCause();
+                throw e;
+            }
+        }
+        long scanned = System.nanoTime();
+
+        //merge in the order of the jars, the caches are always hit
+        for (Resource jar : resources)
+        {
+            if (scanResources)
+                scanForResources(context, jar, resourceCache);
+            if (scanFragments)
+                scanForFragment(context, jar, fragmentCache);
+            if (scanTlds)
+                scanForTlds(context, jar, tldCache);
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug(describe(context, resources, timings, scanned - start, System.nanoTime() - scanned));
+    }
+
+    /**
+     * Replace the sets and map created by MetaInfConfiguration by ordered ones.
+     */
+    @SuppressWarnings("unchecked")
+    private void makeAttributesOrdered(WebAppContext context)
+    {
+        Object tlds = context.getAttribute(METAINF_TLDS);
+        if (tlds != null && !(tlds instanceof LinkedHashSet))
+            context.setAttribute(METAINF_TLDS, new LinkedHashSet<>((Collection<URL>)tlds));
+        Object dirs = context.getAttribute(METAINF_RESOURCES);
+        if (dirs != null && !(dirs instanceof LinkedHashSet))
+            context.setAttribute(METAINF_RESOURCES, new LinkedHashSet<>((Set<Resource>)dirs));
+        Object fragments = context.getAttribute(METAINF_FRAGMENTS);
+        if (fragments != null && !(fragments instanceof LinkedHashMap))
+            context.setAttribute(METAINF_FRAGMENTS, new LinkedHashMap<>((Map<Resource, Resource>)fragments));
+    }
+
+    /**
+     * @return the META-INF/resources directory of the jar, or {@link EmptyResource#INSTANCE}
+     */
+    private Resource findResourcesDir(Resource jar) throws Exception
+    {
+        Resource resourcesDir;
+        if (jar.isDirectory())
+            resourcesDir = jar.addPath("/META-INF/resources");
+        else
+            resourcesDir = Resource.newResource(uriJarPrefix(jar.getURI(), "!/META-INF/resources"));
+        if (!resourcesDir.exists() || !resourcesDir.isDirectory())
+        {
+            resourcesDir.close();
+            return EmptyResource.INSTANCE;
+        }
+        return resourcesDir;
+    }
+
+    /**
+     * @return the META-INF/web-fragment.xml of the jar, or {@link EmptyResource#INSTANCE}
+     */
+    private Resource findFragment(Resource jar) throws Exception
+    {
+        Resource webFrag;
+        if (jar.isDirectory())
+            webFrag = Resource.newResource(new File(jar.getFile(), "/META-INF/web-fragment.xml"));
+        else
+            webFrag = Resource.newResource(uriJarPrefix(jar.getURI(), "!/META-INF/web-fragment.xml"));
+        if (!webFrag.exists() || webFrag.isDirectory())
+        {
+            webFrag.close();
+            return EmptyResource.INSTANCE;
+        }
+        return webFrag;
+    }
+
+    private Collection<URL> findTlds(Resource jar) throws Exception
+    {
+        Collection<URL> tlds = new ArrayList<>();
+        if (jar.isDirectory())
+            tlds.addAll(getTlds(jar.getFile()));
+        else
+            tlds.addAll(getTlds(jar.getURI()));
+        return tlds;
+    }
+
+    private static String uriJarPrefix(URI uri, String suffix)
+    {
+        String uriString = uri.toString();
+        if (uriString.startsWith("jar:"))
+            return uriString + suffix;
+        return "jar:" + uriString + suffix;
+    }
+
+    private static String describe(WebAppContext context, List<Resource> jars, long[] timings, long scanNanos, long mergeNanos)
+    {
+        List<Integer> order = new ArrayList<>(jars.size());
+        for (int i = 0; i < jars.size(); i++)
+        {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong((Integer i) -> timings[i]).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("META-INF discovery of ").append(context.getContextPath()).append(": ")
+            .append(jars.size()).append(" jars scanned in ").append(TimeUnit.NANOSECONDS.toMillis(scanNanos))
+            .append("ms using ").append(POOL_SIZE).append(" threads, merged in ")
+            .append(TimeUnit.NANOSECONDS.toMillis(mergeNanos)).append("ms:");
+        for (int i : order)
+        {
+            sb.append(String.format("%n  %8.1fms  %s", timings[i] / 1_000_000.0, jars.get(i)));
+        }
+        return sb.toString();
+    }
+}
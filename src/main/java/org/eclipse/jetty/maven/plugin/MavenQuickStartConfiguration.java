@@ -20,6 +20,8 @@ package org.eclipse.jetty.maven.plugin;
 
 import java.io.File;
 
+import org.eclipse.jetty.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.annotations.ServletContainerInitializersStarter;
 import org.eclipse.jetty.quickstart.QuickStartConfiguration;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.log.Log;
@@ -90,10 +92,22 @@ public class MavenQuickStartConfiguration extends QuickStartConfiguration
     @Override
     public void deconfigure(WebAppContext context) throws Exception
     {
+        //the descriptor processor registered the initializers, undo it like AnnotationConfiguration
+        //does so that the webapp can be started again from the descriptor
+        ServletContainerInitializersStarter starter = (ServletContainerInitializersStarter)context.getAttribute(AnnotationConfiguration.CONTAINER_INITIALIZER_STARTER);
+        if (starter != null)
+        {
+            context.removeBean(starter);
+            context.removeAttribute(AnnotationConfiguration.CONTAINER_INITIALIZER_STARTER);
+        }
+        context.removeAttribute(AnnotationConfiguration.CONTAINER_INITIALIZERS);
+
         //if we're not persisting the temp dir, get rid of any overlays
         if (!context.isPersistTempDirectory())
         {
             Resource originalBases = (Resource)context.getAttribute("org.eclipse.jetty.resources.originalBases");
+            if (originalBases == null)
+                return; //not started from a generated configuration, there is nothing to clean up
             String originalBaseStr = originalBases.toString();
 
             //Iterate over all of the resource bases and ignore any that were original bases, just
@@ -18,9 +18,15 @@
 
 package org.eclipse.jetty.maven.plugin;
 
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.Collections;
 import java.util.List;
 
+import org.eclipse.jetty.maven.plugin.utils.PathPatterns;
+import org.eclipse.jetty.util.IncludeExcludeSet;
+
 /**
  * ScanPattern
  *
@@ -50,4 +56,24 @@ public class ScanPattern
     {
         return _excludes;
     }
+
+    /**
+     * Add the patterns, as glob patterns, to the includes/excludes of a scanned directory.
+     *
+     * @param directory the scanned directory
+     * @param includesExcludes the includes/excludes of the directory
+     */
+    public void configureIncludesExcludeSet(Path directory, IncludeExcludeSet<PathMatcher, Path> includesExcludes)
+    {
+        FileSystem fileSystem = directory.getFileSystem();
+        for (String include : getIncludes())
+        {
+            includesExcludes.include(PathPatterns.glob(fileSystem, include));
+        }
+
+        for (String exclude : getExcludes())
+        {
+            includesExcludes.exclude(PathPatterns.glob(fileSystem, exclude));
+        }
+    }
 }
@@ -94,18 +94,7 @@ public class ScanTargetPattern
 
     public void configureIncludesExcludeSet(IncludeExcludeSet<PathMatcher, Path> includesExcludes)
     {
-        for (String include:getIncludes())
-        {
-            if (!include.startsWith("glob:"))
-                include = "glob:" + include;
-            includesExcludes.include(_directory.toPath().getFileSystem().getPathMatcher(include));
-        }
-
-        for (String exclude:getExcludes())
-        {
-            if (!exclude.startsWith("glob:"))
-                exclude = "glob:" + exclude;
-            includesExcludes.exclude(_directory.toPath().getFileSystem().getPathMatcher(exclude));
-        }
+        if (_pattern != null)
+            _pattern.configureIncludesExcludeSet(_directory.toPath(), includesExcludes);
     }
 }
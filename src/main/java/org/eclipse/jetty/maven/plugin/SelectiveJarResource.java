@@ -28,16 +28,19 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
-import org.codehaus.plexus.util.SelectorUtils;
+import org.eclipse.jetty.maven.plugin.utils.PathPatterns;
+import org.eclipse.jetty.maven.plugin.utils.ZipExtractor;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.JarResource;
+import org.eclipse.jetty.util.resource.Resource;
 
 /**
  * SelectiveJarResource
@@ -53,6 +56,7 @@ public class SelectiveJarResource extends JarResource
     List<String> _includes = null;
     List<String> _excludes = null;
     boolean _caseSensitive = false;
+    PathPatterns _patterns = null;
 
     public SelectiveJarResource(URL url)
     {
@@ -67,40 +71,65 @@ public class SelectiveJarResource extends JarResource
     public void setCaseSensitive(boolean caseSensitive)
     {
         _caseSensitive = caseSensitive;
+        _patterns = null;
     }
 
     public void setIncludes(List<String> patterns)
     {
         _includes = patterns;
+        _patterns = null;
     }
 
     public void setExcludes(List<String> patterns)
     {
         _excludes = patterns;
+        _patterns = null;
     }
 
-    protected boolean isIncluded(String name)
+    private PathPatterns getPatterns()
     {
-        for (String include : _includes)
+        if (_includes == null)
+            _includes = DEFAULT_INCLUDES;
+        if (_excludes == null)
+            _excludes = DEFAULT_EXCLUDES;
+        PathPatterns patterns = _patterns;
+        if (patterns == null)
         {
-            if (SelectorUtils.matchPath(include, name, _caseSensitive))
-            {
-                return true;
-            }
+            //compile the patterns once, not for every entry
+            patterns = new PathPatterns(_includes, _excludes, _caseSensitive);
+            _patterns = patterns;
         }
-        return false;
+        return patterns;
+    }
+
+    protected boolean isIncluded(String name)
+    {
+        return getPatterns().isIncluded(name);
     }
 
     protected boolean isExcluded(String name)
     {
-        for (String exclude : _excludes)
-        {
-            if (SelectorUtils.matchPath(exclude, name, _caseSensitive))
-            {
-                return true;
-            }
-        }
-        return false;
+        return getPatterns().isExcluded(name);
+    }
+
+    /**
+     * @param name the name of a jar entry
+     * @return true if the entry is selected by the includes/excludes patterns
+     */
+    public boolean isSelected(String name)
+    {
+        //the manifest is selected together with its directory
+        if (JarFile.MANIFEST_NAME.equalsIgnoreCase(name))
+            name = "META-INF";
+        return getPatterns().matches(name);
+    }
+
+    /**
+     * @return a description of the includes/excludes patterns, which changes if the selected entries may change
+     */
+    public String getSelectionKey()
+    {
+        return "includes=" + _includes + ";excludes=" + _excludes + ";caseSensitive=" + _caseSensitive;
     }
 
     /**
@@ -129,6 +158,18 @@ public class SelectiveJarResource extends JarResource
 
         URL jarFileURL = new URL(urlString.substring(startOfJarUrl, endOfJarUrl));
 
+        //a local file can be read with random access and extracted concurrently
+        if ("file".equalsIgnoreCase(jarFileURL.getProtocol()))
+        {
+            File jarFile = Resource.newResource(jarFileURL).getFile();
+            if (jarFile != null && jarFile.isFile())
+            {
+                int count = new ZipExtractor().extractAll(jarFile, directory, this::isSelected);
+                LOG.debug("Extracted {} files from {}", count, jarFile);
+                return;
+            }
+        }
+
         try (InputStream is = jarFileURL.openConnection().getInputStream();
              JarInputStream jin = new JarInputStream(is))
         {
@@ -18,19 +18,25 @@
 
 package org.eclipse.jetty.maven.plugin;
 
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
+import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.resource.Resource;
 
 /**
  * ServerListener
  *
- * Listener to create a file that signals that the startup is completed.
+ * Listener to create a file that signals that the startup is completed,
+ * or to report the startup to the plugin listening on a port.
  * Used by the JettyRunDistro maven goal to determine that the child
  * process is started, and that jetty is ready.
  */
 public class ServerListener implements LifeCycle.Listener
 {
     private String _tokenFile;
+    private int _readyPort;
+    private String _readyKey;
+    private ReadinessChannel.Reporter _reporter;
 
     public void setTokenFile(String file)
     {
@@ -42,9 +48,43 @@ public class ServerListener implements LifeCycle.Listener
         return _tokenFile;
     }
 
+    public void setReadyPort(int port)
+    {
+        _readyPort = port;
+    }
+
+    public int getReadyPort()
+    {
+        return _readyPort;
+    }
+
+    public void setReadyKey(String key)
+    {
+        _readyKey = key;
+    }
+
+    public String getReadyKey()
+    {
+        return _readyKey;
+    }
+
+    @Override
+    public void lifeCycleStarting(LifeCycle event)
+    {
+        //follow the contexts deployed while the server starts
+        if (_readyPort > 0 && _readyKey != null && !_readyKey.isEmpty() && event instanceof Server)
+        {
+            _reporter = new ReadinessChannel.Reporter(_readyPort, _readyKey);
+            _reporter.watch((Server)event);
+        }
+    }
+
     @Override
     public void lifeCycleStarted(LifeCycle event)
     {
+        if (_reporter != null)
+            _reporter.started();
+
         if (_tokenFile != null)
         {
             try
@@ -19,19 +19,24 @@
 package org.eclipse.jetty.maven.plugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jetty.maven.plugin.utils.ReadinessChannel;
+import org.eclipse.jetty.maven.plugin.utils.WarmFork;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ShutdownMonitor;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.webapp.Configuration;
 
 /**
  * Starter Class which is exec'ed to create a new jetty process. Used by the JettyRunForked mojo.
@@ -42,13 +47,21 @@ public class Starter
 
     private List<File> jettyXmls; // list of jetty.xml config files to apply
     private Server server;
-    private JettyWebAppContext webApp;
+    private List<JettyWebAppContext> webApps;
     private Map<String, String> jettyProperties; //optional list of jetty properties to set
 
     private int stopPort = 0;
     private String stopKey = null;
-    private File propsFile;
+    private File configFile;
+    private String[] configurationClasses;
     private String token;
+    private int readyPort = -1;
+    private String readyKey;
+    private ReadinessChannel.Reporter reporter;
+    private File startupProfileFile;
+    private int redeployPort = -1;
+    private File redeployFile;
+    private String redeployId;
 
     public void configureJetty() throws Exception
     {
@@ -66,22 +79,17 @@ public class Starter
 
         //Set up list of default Configurations to apply to a webapp
         ServerSupport.configureDefaultConfigurationClasses(server);
+        if (configurationClasses != null)
+            server.setAttribute(Configuration.ATTR, configurationClasses);
 
-        webApp = new JettyWebAppContext();
+        //configure the webapps from the file describing the unassembled webapps
+        webApps = configureWebApps();
 
-        //configure webapp from properties file describing unassembled webapp
-        configureWebApp();
-
-        //make it a quickstart if the quickstart-web.xml file exists
-        if (webApp.getTempDirectory() != null)
+        for (JettyWebAppContext webApp : webApps)
         {
-            File qs = new File(webApp.getTempDirectory(), "quickstart-web.xml");
-            if (qs.exists() && qs.isFile())
-                webApp.setQuickStartWebDescriptor(Resource.newResource(qs));
+            ServerSupport.addWebApplication(server, webApp);
         }
 
-        ServerSupport.addWebApplication(server, webApp);
-
         if (stopPort > 0 && stopKey != null)
         {
             ShutdownMonitor monitor = ShutdownMonitor.getInstance();
@@ -91,14 +99,52 @@ public class Starter
         }
     }
 
-    public void configureWebApp()
+    private void applyQuickStartWebDescriptor(JettyWebAppContext webApp) throws Exception
+    {
+        if (webApp.getTempDirectory() != null)
+        {
+            File qs = new File(webApp.getTempDirectory(), "quickstart-web.xml");
+            if (qs.exists() && qs.isFile())
+                webApp.setQuickStartWebDescriptor(Resource.newResource(qs));
+        }
+    }
+
+    /**
+     * Configure the webapps from the configuration file, a fork configuration or a properties
+     * file describing a single webapp.
+     *
+     * @return the webapps
+     * @throws Exception if the webapps cannot be configured
+     */
+    public List<JettyWebAppContext> configureWebApps()
         throws Exception
     {
-        if (propsFile == null)
-            return;
+        List<JettyWebAppContext> configured;
+        if (configFile == null)
+        {
+            configured = new ArrayList<>();
+            configured.add(new JettyWebAppContext());
+        }
+        else if (ForkConfiguration.isForkConfiguration(configFile))
+        {
+            configured = ForkConfiguration.read(configFile, server, jettyProperties);
+        }
+        else
+        {
+            //apply a properties file that defines the things that we configure in the jetty:run plugin
+            JettyWebAppContext webApp = new JettyWebAppContext();
+            WebAppPropertyConverter.fromProperties(webApp, configFile, server, jettyProperties);
+            configured = new ArrayList<>();
+            configured.add(webApp);
+        }
 
-        //apply a properties file that defines the things that we configure in the jetty:run plugin
-        WebAppPropertyConverter.fromProperties(webApp, propsFile, server, jettyProperties);
+        //make them quickstarts if the quickstart-web.xml files exist
+        for (JettyWebAppContext webApp : configured)
+        {
+            applyQuickStartWebDescriptor(webApp);
+            webApp.setProfileStartup(startupProfileFile != null);
+        }
+        return configured;
     }
 
     public void getConfiguration(String[] args)
@@ -132,10 +178,25 @@ public class Starter
                 continue;
             }
 
-            //--props
+            //--config
+            if ("--config".equals(args[i]))
+            {
+                configFile = new File(args[++i].trim());
+                continue;
+            }
+
+            //--props, a properties file describing a single webapp
             if ("--props".equals(args[i]))
             {
-                propsFile = new File(args[++i].trim());
+                configFile = new File(args[++i].trim());
+                continue;
+            }
+
+            //--configuration-classes, replacing the default Configurations
+            if ("--configuration-classes".equals(args[i]))
+            {
+                List<String> classes = fromCSV(args[++i]);
+                configurationClasses = classes == null ? null : classes.toArray(new String[0]);
                 continue;
             }
 
@@ -146,6 +207,48 @@ public class Starter
                 continue;
             }
 
+            //--ready-port
+            if ("--ready-port".equals(args[i]))
+            {
+                readyPort = Integer.parseInt(args[++i].trim());
+                continue;
+            }
+
+            //--ready-key
+            if ("--ready-key".equals(args[i]))
+            {
+                readyKey = args[++i].trim();
+                continue;
+            }
+
+            //--startup-profile
+            if ("--startup-profile".equals(args[i]))
+            {
+                startupProfileFile = new File(args[++i].trim());
+                continue;
+            }
+
+            //--redeploy-port
+            if ("--redeploy-port".equals(args[i]))
+            {
+                redeployPort = Integer.parseInt(args[++i].trim());
+                continue;
+            }
+
+            //--redeploy-file
+            if ("--redeploy-file".equals(args[i]))
+            {
+                redeployFile = new File(args[++i].trim());
+                continue;
+            }
+
+            //--redeploy-id
+            if ("--redeploy-id".equals(args[i]))
+            {
+                redeployId = args[++i].trim();
+                continue;
+            }
+
             //assume everything else is a jetty property to be passed in
             if (jettyProperties == null)
                 jettyProperties = new HashMap<>();
@@ -162,6 +265,99 @@ public class Starter
         server.start();
     }
 
+    /**
+     * Report the startup of the server to the plugin as it goes, if the plugin listens for it.
+     */
+    public void reportStartup()
+    {
+        if (readyPort <= 0 || readyKey == null)
+            return;
+
+        reporter = new ReadinessChannel.Reporter(readyPort, readyKey);
+        reporter.watch(server);
+    }
+
+    /**
+     * Print the startup profile of the webapps and write it to a file, if asked to.
+     */
+    public void reportStartupProfile()
+    {
+        if (startupProfileFile == null)
+            return;
+
+        List<JettyWebAppContext> started = StartupProfiler.getWebApps(server);
+        LOG.info(StartupProfiler.toTable(started));
+        try
+        {
+            StartupProfiler.writeJson(started, startupProfileFile);
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Cannot write the startup profile to " + startupProfileFile, e);
+        }
+    }
+
+    /**
+     * Keep listening for the webapps to redeploy, if the process is a warm fork.
+     *
+     * @throws Exception if unable to listen
+     */
+    public void listenForRedeploys() throws Exception
+    {
+        if (redeployPort < 0 || redeployFile == null)
+            return;
+
+        WarmFork.listen(redeployPort, redeployFile, redeployId, new WarmFork.Target()
+        {
+            @Override
+            public void redeploy(File config) throws Exception
+            {
+                Starter.this.redeploy(config);
+            }
+
+            @Override
+            public void stop() throws Exception
+            {
+                server.stop();
+            }
+        });
+    }
+
+    /**
+     * Replace the webapps by new ones configured from a configuration file, without stopping
+     * the server.
+     *
+     * @param config the fork configuration or properties file describing the webapps
+     * @throws Exception if the new webapps cannot be started
+     */
+    public synchronized void redeploy(File config) throws Exception
+    {
+        long start = System.nanoTime();
+
+        //configure the new webapps first, an invalid configuration leaves the old ones running
+        configFile = config;
+        List<JettyWebAppContext> configured = configureWebApps();
+
+        ContextHandlerCollection contexts = ServerSupport.findContextHandlerCollection(server);
+        for (JettyWebAppContext old : webApps)
+        {
+            old.stop();
+            if (contexts != null)
+                contexts.removeHandler(old);
+            old.destroy();
+        }
+
+        webApps = configured;
+        for (JettyWebAppContext webApp : webApps)
+        {
+            ServerSupport.addWebApplication(server, webApp);
+            webApp.start();
+            if (!webApp.isAvailable())
+                throw new IllegalStateException("Webapp " + webApp.getContextPath() + " is not available", webApp.getUnavailableException());
+        }
+        LOG.info("Redeployed {} webapps in {}ms", webApps.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
     public void join() throws Exception
     {
         server.join();
@@ -169,6 +365,9 @@ public class Starter
 
     public void communicateStartupResult()
     {
+        if (reporter != null)
+            reporter.started();
+
         if (token != null)
         {
             try
@@ -240,13 +439,18 @@ public class Starter
             starter = new Starter();
             starter.getConfiguration(args);
             starter.configureJetty();
+            starter.reportStartup();
             starter.run();
+            starter.reportStartupProfile();
+            starter.listenForRedeploys();
             starter.communicateStartupResult();
             starter.join();
         }
         catch (Exception e)
         {
             e.printStackTrace();
+            if (starter != null && starter.reporter != null)
+                starter.reporter.failed(e);
             System.exit(1);
         }
     }
@@ -0,0 +1,299 @@
+package org.eclipse.jetty.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.ajax.JSON;
+import org.eclipse.jetty.webapp.Configuration;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+/**
+ * StartupProfiler
+ *
+ * Records the wall-clock time and the bytes allocated by each phase of the startup of a
+ * {@link JettyWebAppContext}: the configuration done by the plugin, each step of each
+ * {@link Configuration}, the resolution of the descriptors and annotations, each context
+ * listener and the rest of the start of the webapp.
+ *
+ * Phases may be nested, a phase only accounts for what its nested phases did not do, so that
+ * the phases of a webapp add up to its startup. The allocated bytes are those of the thread
+ * running the phase, and are only known on JVMs that measure them.
+ *
+ * The steps of the configurations are only measured when the profiler is a bean of its webapp,
+ * see {@link JettyWebAppContext#setProfileStartup(boolean)}, wrapping the configurations the
+ * webapp loads.
+ */
+public class StartupProfiler implements Configuration.WrapperFunction
+{
+    public static final String FILE_NAME = "jetty-startup-profile.json";
+
+    private static final int MAX_PHASES_SHOWN = 25;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATIONS = isAllocationMeasured();
+
+    private final Map<String, long[]> _phases = new LinkedHashMap<>();
+    private final Deque<Phase> _open = new ArrayDeque<>();
+
+    /**
+     * A phase being measured, closed when it ends.
+     */
+    public class Phase implements AutoCloseable
+    {
+        private final String _name;
+        private final long _startNanos = System.nanoTime();
+        private final long _startBytes = allocatedBytes();
+        private long _nestedNanos;
+        private long _nestedBytes;
+
+        private Phase(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void close()
+        {
+            long nanos = System.nanoTime() - _startNanos;
+            long bytes = ALLOCATIONS ? allocatedBytes() - _startBytes : 0;
+            synchronized (StartupProfiler.this)
+            {
+                _open.remove(this);
+                Phase parent = _open.peek();
+                if (parent != null)
+                {
+                    parent._nestedNanos += nanos;
+                    parent._nestedBytes += bytes;
+                }
+                add(_name, nanos - _nestedNanos, bytes - _nestedBytes);
+            }
+        }
+    }
+
+    /**
+     * Start measuring a phase.
+     *
+     * @param name the name of the phase
+     * @return the phase, to close when it ends
+     */
+    public synchronized Phase begin(String name)
+    {
+        Phase phase = new Phase(name);
+        _open.push(phase);
+        return phase;
+    }
+
+    /**
+     * Forget the phases of a previous startup.
+     */
+    public synchronized void clear()
+    {
+        _phases.clear();
+        _open.clear();
+    }
+
+    /**
+     * @return the total time of the phases, in nanoseconds
+     */
+    public synchronized long getTotalNanos()
+    {
+        long total = 0;
+        for (long[] phase : _phases.values())
+        {
+            total += phase[0];
+        }
+        return total;
+    }
+
+    private void add(String name, long nanos, long bytes)
+    {
+        long[] phase = _phases.computeIfAbsent(name, n -> new long[2]);
+        phase[0] += nanos;
+        phase[1] += bytes;
+    }
+
+    private synchronized Map<String, long[]> getPhases()
+    {
+        Map<String, long[]> copy = new LinkedHashMap<>();
+        _phases.forEach((name, phase) -> copy.put(name, phase.clone()));
+        return copy;
+    }
+
+    @Override
+    public Configuration wrapConfiguration(Configuration configuration)
+    {
+        return new ProfiledConfiguration(configuration);
+    }
+
+    /**
+     * Measures each step of a configuration.
+     */
+    private class ProfiledConfiguration extends Configuration.Wrapper
+    {
+        private final String _name;
+
+        private ProfiledConfiguration(Configuration configuration)
+        {
+            super(configuration);
+            _name = configuration.getClass().getSimpleName();
+        }
+
+        @Override
+        public void preConfigure(WebAppContext context) throws Exception
+        {
+            try (Phase ignored = begin(_name + ".preConfigure"))
+            {
+                super.preConfigure(context);
+            }
+        }
+
+        @Override
+        public void configure(WebAppContext context) throws Exception
+        {
+            try (Phase ignored = begin(_name + ".configure"))
+            {
+                super.configure(context);
+            }
+        }
+
+        @Override
+        public void postConfigure(WebAppContext context) throws Exception
+        {
+            try (Phase ignored = begin(_name + ".postConfigure"))
+            {
+                super.postConfigure(context);
+            }
+        }
+    }
+
+    /**
+     * @param webApps the started webapps
+     * @return a table of the webapps, then of their phases, the slowest first
+     */
+    public static String toTable(Collection<JettyWebAppContext> webApps)
+    {
+        List<JettyWebAppContext> sorted = new ArrayList<>(webApps);
+        sorted.sort(Comparator.comparingLong((JettyWebAppContext w) -> w.getStartupProfiler().getTotalNanos()).reversed());
+
+        List<Object[]> rows = new ArrayList<>();
+        StringBuilder table = new StringBuilder("Startup profile, slowest first");
+        table.append(String.format("%n  %-40s %10s %12s", "webapp", "ms", "alloc MB"));
+        for (JettyWebAppContext webApp : sorted)
+        {
+            long nanos = 0;
+            long bytes = 0;
+            for (Map.Entry<String, long[]> phase : webApp.getStartupProfiler().getPhases().entrySet())
+            {
+                nanos += phase.getValue()[0];
+                bytes += phase.getValue()[1];
+                rows.add(new Object[]{webApp.getContextPath(), phase.getKey(), phase.getValue()});
+            }
+            table.append(String.format("%n  %-40s %10d %12s", webApp.getContextPath(), nanos / 1_000_000, megabytes(bytes)));
+        }
+
+        rows.sort(Comparator.comparingLong((Object[] row) -> ((long[])row[2])[0]).reversed());
+        table.append(String.format("%n%n  %-40s %-45s %10s %12s", "webapp", "phase", "ms", "alloc MB"));
+        int shown = 0;
+        for (Object[] row : rows)
+        {
+            long[] phase = (long[])row[2];
+            if (shown == MAX_PHASES_SHOWN || phase[0] < 1_000_000)
+                break;
+            table.append(String.format("%n  %-40s %-45s %10d %12s", row[0], row[1], phase[0] / 1_000_000, megabytes(phase[1])));
+            shown++;
+        }
+        if (rows.size() > shown)
+            table.append(String.format("%n  ... %d faster phases", rows.size() - shown));
+        return table.toString();
+    }
+
+    /**
+     * Write the phases of the webapps as JSON.
+     *
+     * @param webApps the started webapps
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeJson(Collection<JettyWebAppContext> webApps, File file) throws IOException
+    {
+        List<Object> contexts = new ArrayList<>();
+        for (JettyWebAppContext webApp : webApps)
+        {
+            List<Object> phases = new ArrayList<>();
+            webApp.getStartupProfiler().getPhases().forEach((name, phase) ->
+            {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("name", name);
+                entry.put("millis", phase[0] / 1_000_000.0);
+                if (ALLOCATIONS)
+                    entry.put("allocatedBytes", phase[1]);
+                phases.add(entry);
+            });
+            Map<String, Object> context = new LinkedHashMap<>();
+            context.put("contextPath", webApp.getContextPath());
+            context.put("millis", webApp.getStartupProfiler().getTotalNanos() / 1_000_000.0);
+            context.put("phases", phases);
+            contexts.add(context);
+        }
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("allocationsMeasured", ALLOCATIONS);
+        profile.put("webapps", contexts);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+        Files.write(file.toPath(), new JSON().toJSON(profile).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param server the started server
+     * @return the webapps of the server
+     */
+    public static List<JettyWebAppContext> getWebApps(Server server)
+    {
+        List<JettyWebAppContext> webApps = new ArrayList<>();
+        for (Handler handler : server.getChildHandlersByClass(JettyWebAppContext.class))
+        {
+            webApps.add((JettyWebAppContext)handler);
+        }
+        return webApps;
+    }
+
+    private static String megabytes(long bytes)
+    {
+        return ALLOCATIONS ? String.format("%.1f", bytes / (1024.0 * 1024.0)) : "-";
+    }
+
+    private static long allocatedBytes()
+    {
+        return ALLOCATIONS ? ((com.sun.management.ThreadMXBean)THREADS).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static boolean isAllocationMeasured()
+    {
+        try
+        {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean)THREADS).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean)THREADS).isThreadAllocatedMemoryEnabled();
+        }
+        catch (LinkageError e)
+        {
+            return false;
+        }
+    }
+}
@@ -20,13 +20,18 @@ package org.eclipse.jetty.maven.plugin;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.eclipse.jetty.maven.plugin.utils.ArchiveResource;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.resource.Resource;
@@ -38,9 +43,39 @@ import org.eclipse.jetty.xml.XmlConfiguration;
  *
  * Converts a webapp's configuration to a properties file, and
  * vice versa.
+ *
+ * The configuration is a list of entries whose value is a string or a list of strings, which
+ * {@link ForkConfiguration} also stores in its binary format. In a properties file the lists
+ * are comma separated.
  */
 public class WebAppPropertyConverter
 {
+    static final String WAR = "war";
+    static final String WEB_XML = "web.xml";
+    static final String DEFAULTS_XML = "defaults.xml";
+    static final String OVERRIDE_XMLS = "override.xmls";
+    static final String QUICKSTART_WEB_XML = "quickstart.web.xml";
+    static final String QUICKSTART_CACHE_DIR = "quickstart.cache.dir";
+    static final String CONTEXT_PATH = "context.path";
+    static final String TMP_DIR = "tmp.dir";
+    static final String TMP_DIR_PERSIST = "tmp.dir.persist";
+    static final String BASE_DIRS = "base.dirs";
+    static final String CLASSES_DIR = "classes.dir";
+    static final String TEST_CLASSES_DIR = "testClasses.dir";
+    static final String LIB_JARS = "lib.jars";
+    static final String CONTAINER_JAR_PATTERN = "container.include.jar.pattern";
+    static final String WEBINF_JAR_PATTERN = "webinf.include.jar.pattern";
+    static final String CONTEXT_XML = "context.xml";
+
+    /**
+     * The keys in the order they are applied: the context xml file last, so that it can override
+     * the other settings.
+     */
+    static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList(
+        CONTEXT_PATH, WAR, WEB_XML, DEFAULTS_XML, OVERRIDE_XMLS, QUICKSTART_WEB_XML, QUICKSTART_CACHE_DIR, TMP_DIR, TMP_DIR_PERSIST, BASE_DIRS,
+        CLASSES_DIR, TEST_CLASSES_DIR, LIB_JARS, CONTAINER_JAR_PATTERN, WEBINF_JAR_PATTERN, CONTEXT_XML));
+
+    private static final List<String> LIST_KEYS = Arrays.asList(OVERRIDE_XMLS, BASE_DIRS, LIB_JARS);
 
     /**
      * Convert a webapp to properties stored in a file.
@@ -65,69 +100,126 @@ public class WebAppPropertyConverter
         propsFile.createNewFile();
 
         Properties props = new Properties();
+        for (Map.Entry<String, Object> entry : toEntries(webApp, contextXml).entrySet())
+        {
+            if (entry.getValue() instanceof List)
+                props.put(entry.getKey(), String.join(",", toList(entry.getValue())));
+            else
+                props.put(entry.getKey(), entry.getValue());
+        }
+
+        try (BufferedWriter out = Files.newBufferedWriter(propsFile.toPath()))
+        {
+            props.store(out, "properties for forked webapp");
+        }
+    }
+
+    /**
+     * Convert a webapp to configuration entries.
+     *
+     * @param webApp the webapp to convert
+     * @param contextXml the optional context xml file related to the webApp
+     * @return the entries in the order of {@link #KEYS}, the values are strings or lists of strings
+     * @throws IOException if the quickstart descriptor is not a file
+     */
+    static Map<String, Object> toEntries(JettyWebAppContext webApp, String contextXml)
+        throws IOException
+    {
+        Map<String, Object> entries = new LinkedHashMap<>();
+        //sort out the context path
+        if (webApp.getContextPath() != null)
+        {
+            entries.put(CONTEXT_PATH, webApp.getContextPath());
+        }
+
         //web.xml
         if (webApp.getDescriptor() != null)
         {
-            props.put("web.xml", webApp.getDescriptor());
+            entries.put(WEB_XML, webApp.getDescriptor());
         }
 
         if (webApp.getQuickStartWebDescriptor() != null)
         {
-            props.put("quickstart.web.xml", webApp.getQuickStartWebDescriptor().getFile().getAbsolutePath());
+            entries.put(QUICKSTART_WEB_XML, webApp.getQuickStartWebDescriptor().getFile().getAbsolutePath());
+        }
+        else
+        {
+            //a quickstart descriptor already contains the defaults and overrides
+            if (webApp.getDefaultsDescriptor() != null)
+                entries.put(DEFAULTS_XML, webApp.getDefaultsDescriptor());
+            if (!webApp.getOverrideDescriptors().isEmpty())
+                entries.put(OVERRIDE_XMLS, new ArrayList<>(webApp.getOverrideDescriptors()));
         }
 
-        //sort out the context path
-        if (webApp.getContextPath() != null)
+        if (webApp.getQuickStartCacheDirectory() != null)
         {
-            props.put("context.path", webApp.getContextPath());
+            entries.put(QUICKSTART_CACHE_DIR, webApp.getQuickStartCacheDirectory().getAbsolutePath());
         }
 
-        //tmp dir
-        props.put("tmp.dir", webApp.getTempDirectory().getAbsolutePath());
-        //props.put("tmp.dir.persist", Boolean.toString(originalPersistTemp));
-        props.put("tmp.dir.persist", Boolean.toString(webApp.isPersistTempDirectory()));
+        //tmp dir, only known once the webapp has been started
+        if (webApp.getTempDirectory() != null)
+        {
+            entries.put(TMP_DIR, webApp.getTempDirectory().getAbsolutePath());
+            entries.put(TMP_DIR_PERSIST, Boolean.toString(webApp.isPersistTempDirectory()));
+        }
 
         //send over the calculated resource bases that includes unpacked overlays
         Resource baseResource = webApp.getBaseResource();
-        if (baseResource instanceof ResourceCollection)
-            props.put("base.dirs", toCSV(((ResourceCollection)webApp.getBaseResource()).getResources()));
-        else
-            props.put("base.dirs", webApp.getBaseResource().toString());
+        if (baseResource != null)
+        {
+            List<String> bases = new ArrayList<>();
+            if (baseResource instanceof ResourceCollection)
+            {
+                for (Resource r : ((ResourceCollection)baseResource).getResources())
+                {
+                    //its includes, excludes and target path would be lost in the uri of its war
+                    if (r instanceof ArchiveResource)
+                        throw new IllegalArgumentException("The overlay " + r + " is served from its archive, which cannot be passed to another process: use the overlayMode '" + JettyWebAppContext.OVERLAY_MODE_UNPACK + "'");
+                    bases.add(r.toString());
+                }
+            }
+            else
+                bases.add(baseResource.toString());
+            entries.put(BASE_DIRS, bases);
+        }
+        else if (webApp.getWar() != null)
+        {
+            //a packed war, unpacked by the webapp itself
+            entries.put(WAR, webApp.getWar());
+        }
 
         //web-inf classes
         if (webApp.getClasses() != null)
         {
-            props.put("classes.dir", webApp.getClasses().getAbsolutePath());
+            entries.put(CLASSES_DIR, webApp.getClasses().getAbsolutePath());
         }
 
         if (webApp.getTestClasses() != null)
         {
-            props.put("testClasses.dir", webApp.getTestClasses().getAbsolutePath());
+            entries.put(TEST_CLASSES_DIR, webApp.getTestClasses().getAbsolutePath());
         }
 
         //web-inf lib
-        List<File> deps = webApp.getWebInfLib();
-        StringBuilder strbuff = new StringBuilder();
-        if (deps != null)
+        List<String> jars = new ArrayList<>();
+        if (webApp.getWebInfLib() != null)
         {
-            for (int i = 0; i < deps.size(); i++)
+            for (File d : webApp.getWebInfLib())
             {
-                File d = deps.get(i);
-                strbuff.append(d.getAbsolutePath());
-                if (i < deps.size() - 1)
-                    strbuff.append(",");
+                jars.add(d.getAbsolutePath());
             }
         }
-        props.put("lib.jars", strbuff.toString());
+        entries.put(LIB_JARS, jars);
+
+        //the patterns of the jars to scan
+        if (webApp.getContainerIncludeJarPattern() != null)
+            entries.put(CONTAINER_JAR_PATTERN, webApp.getContainerIncludeJarPattern());
+        if (webApp.getWebInfIncludeJarPattern() != null)
+            entries.put(WEBINF_JAR_PATTERN, webApp.getWebInfIncludeJarPattern());
 
         //context xml to apply
         if (contextXml != null)
-            props.put("context.xml", contextXml);
-
-        try (BufferedWriter out = Files.newBufferedWriter(propsFile.toPath()))
-        {
-            props.store(out, "properties for forked webapp");
-        }
+            entries.put(CONTEXT_XML, contextXml);
+        return entries;
     }
 
     /**
@@ -174,107 +266,166 @@ public class WebAppPropertyConverter
             props.load(in);
         }
 
-        String str = props.getProperty("context.path");
-        if (!StringUtil.isBlank(str))
-            webApp.setContextPath(str);
-
-        // - web.xml
-        str = props.getProperty("web.xml");
-        if (!StringUtil.isBlank(str))
-            webApp.setDescriptor(str);
-
-        //TODO the WebAppStarter class doesn't set up the QUICKSTART_CONFIGURATION_CLASSES, but the Starter class does!!!
-        str = props.getProperty("quickstart.web.xml");
-        if (!StringUtil.isBlank(str))
+        for (String key : KEYS)
         {
-            webApp.setQuickStartWebDescriptor(Resource.newResource(new File(str)));
-            webApp.setConfigurationClasses(JettyWebAppContext.QUICKSTART_CONFIGURATION_CLASSES);
+            String str = props.getProperty(key);
+            if (StringUtil.isBlank(str))
+                continue;
+            if (LIST_KEYS.contains(key))
+            {
+                List<String> values = new ArrayList<>();
+                for (String value : StringUtil.csvSplit(str))
+                {
+                    values.add(value.trim());
+                }
+                apply(webApp, key, values, server, jettyProperties);
+            }
+            else
+                apply(webApp, key, str, server, jettyProperties);
         }
+    }
 
-        // - the tmp directory
-        str = props.getProperty("tmp.dir");
-        if (!StringUtil.isBlank(str))
-            webApp.setTempDirectory(new File(str.trim()));
-
-        str = props.getProperty("tmp.dir.persist");
-        if (!StringUtil.isBlank(str))
-            webApp.setPersistTempDirectory(Boolean.valueOf(str));
-
-        //Get the calculated base dirs which includes the overlays
-        str = props.getProperty("base.dirs");
-        if (!StringUtil.isBlank(str))
+    /**
+     * @param value the value of a list entry
+     * @return the strings of the list
+     * @throws IllegalArgumentException if the value is not a list of strings
+     */
+    static List<String> toList(Object value)
+    {
+        if (!(value instanceof List))
+            throw new IllegalArgumentException("Not a list: " + value);
+        List<String> list = new ArrayList<>();
+        for (Object item : (List<?>)value)
         {
-            ResourceCollection bases = new ResourceCollection(StringUtil.csvSplit(str));
-            webApp.setWar(null);
-            webApp.setBaseResource(bases);
+            if (!(item instanceof String))
+                throw new IllegalArgumentException("Not a string: " + item);
+            list.add((String)item);
         }
+        return list;
+    }
 
-        // - the equivalent of web-inf classes
-        str = props.getProperty("classes.dir");
-        if (!StringUtil.isBlank(str))
+    /**
+     * Apply a configuration entry to a webapp.
+     *
+     * @param webApp the webapp to configure
+     * @param key the key of the entry
+     * @param value the value, a string or a list of strings
+     * @param server the Server instance to use if there is a context xml file to apply
+     * @param jettyProperties jetty properties to use if there is a context xml file to apply
+     * @throws Exception if the entry cannot be applied
+     */
+    static void apply(JettyWebAppContext webApp, String key, Object value, Server server, Map<String, String> jettyProperties)
+        throws Exception
+    {
+        switch (key)
         {
-            webApp.setClasses(new File(str));
-        }
+            case CONTEXT_PATH:
+                webApp.setContextPath((String)value);
+                break;
+
+            case WAR:
+                webApp.setWar((String)value);
+                break;
+
+            // - web.xml
+            case WEB_XML:
+                webApp.setDescriptor((String)value);
+                break;
+
+            case DEFAULTS_XML:
+                webApp.setDefaultsDescriptor((String)value);
+                break;
+
+            case OVERRIDE_XMLS:
+                webApp.setOverrideDescriptors(toList(value));
+                break;
+
+            //TODO the WebAppStarter class doesn't set up the QUICKSTART_CONFIGURATION_CLASSES, but the Starter class does!!!
+            case QUICKSTART_WEB_XML:
+                webApp.setQuickStartWebDescriptor(Resource.newResource(new File((String)value)));
+                webApp.setConfigurationClasses(JettyWebAppContext.QUICKSTART_CONFIGURATION_CLASSES);
+                break;
+
+            case QUICKSTART_CACHE_DIR:
+                webApp.setQuickStartCacheDirectory(new File((String)value));
+                break;
+
+            // - the tmp directory
+            case TMP_DIR:
+                webApp.setTempDirectory(new File(((String)value).trim()));
+                break;
+
+            case TMP_DIR_PERSIST:
+                webApp.setPersistTempDirectory(Boolean.valueOf((String)value));
+                break;
+
+            //Get the calculated base dirs which includes the overlays
+            case BASE_DIRS:
+            {
+                List<String> bases = toList(value);
+                if (bases.isEmpty())
+                    break;
+                webApp.setWar(null);
+                webApp.setBaseResource(new ResourceCollection(bases.toArray(new String[0])));
+                break;
+            }
 
-        str = props.getProperty("testClasses.dir");
-        if (!StringUtil.isBlank(str))
-        {
-            webApp.setTestClasses(new File(str));
-        }
+            // - the equivalent of web-inf classes
+            case CLASSES_DIR:
+                webApp.setClasses(new File((String)value));
+                break;
 
-        // - the equivalent of web-inf lib
-        str = props.getProperty("lib.jars");
-        if (!StringUtil.isBlank(str))
-        {
-            List<File> jars = new ArrayList<File>();
-            String[] names = StringUtil.csvSplit(str);
-            for (int j = 0; names != null && j < names.length; j++)
+            case TEST_CLASSES_DIR:
+                webApp.setTestClasses(new File((String)value));
+                break;
+
+            // - the equivalent of web-inf lib
+            case LIB_JARS:
             {
-                jars.add(new File(names[j].trim()));
+                List<File> jars = new ArrayList<>();
+                for (String name : toList(value))
+                {
+                    jars.add(new File(name.trim()));
+                }
+                if (!jars.isEmpty())
+                    webApp.setWebInfLib(jars);
+                break;
             }
-            webApp.setWebInfLib(jars);
-        }
 
-        //set up the webapp from the context xml file provided
-        //NOTE: just like jetty:run mojo this means that the context file can
-        //potentially override settings made in the pom. Ideally, we'd like
-        //the pom to override the context xml file, but as the other mojos all
-        //configure a WebAppContext in the pom (the <webApp> element), it is 
-        //already configured by the time the context xml file is applied.
-        str = props.getProperty("context.xml");
-        if (!StringUtil.isBlank(str))
-        {
-            XmlConfiguration xmlConfiguration = new XmlConfiguration(Resource.newResource(str).getURI().toURL());
-            xmlConfiguration.getIdMap().put("Server", server);
-            //add in any properties
-            if (jettyProperties != null)
+            // - the patterns of the jars to scan
+            case CONTAINER_JAR_PATTERN:
+                webApp.setContainerIncludeJarPattern((String)value);
+                break;
+
+            case WEBINF_JAR_PATTERN:
+                webApp.setWebInfIncludeJarPattern((String)value);
+                break;
+
+            //set up the webapp from the context xml file provided
+            //NOTE: just like jetty:run mojo this means that the context file can
+            //potentially override settings made in the pom. Ideally, we'd like
+            //the pom to override the context xml file, but as the other mojos all
+            //configure a WebAppContext in the pom (the <webApp> element), it is
+            //already configured by the time the context xml file is applied.
+            case CONTEXT_XML:
             {
-                for (Map.Entry<String, String> prop : jettyProperties.entrySet())
+                XmlConfiguration xmlConfiguration = new XmlConfiguration(Resource.newResource((String)value).getURI().toURL());
+                xmlConfiguration.getIdMap().put("Server", server);
+                //add in any properties
+                if (jettyProperties != null)
                 {
-                    xmlConfiguration.getProperties().put(prop.getKey(), prop.getValue());
+                    for (Map.Entry<String, String> prop : jettyProperties.entrySet())
+                    {
+                        xmlConfiguration.getProperties().put(prop.getKey(), prop.getValue());
+                    }
                 }
+                xmlConfiguration.configure(webApp);
+                break;
             }
-            xmlConfiguration.configure(webApp);
-        }
-    }
 
-    /**
-     * Convert an array of Resources to csv file names
-     *
-     * @param resources the resources to convert
-     * @return csv string of resource filenames
-     */
-    private static String toCSV(Resource[] resources)
-    {
-        StringBuilder rb = new StringBuilder();
-
-        for (Resource r : resources)
-        {
-            if (rb.length() > 0)
-                rb.append(",");
-            rb.append(r.toString());
+            default:
+                //an entry of a newer plugin
+                break;
         }
-
-        return rb.toString();
     }
 }
@@ -0,0 +1,236 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.maven.plugin.logging.Log;
+/**
+ * AbstractFileWatcher
+ *
+ * Watches the files of several webapps at once: each unique path is watched a single
+ * time and is mapped back to every subscriber that registered the path (or one of its
+ * parent directories).
+ *
+ * The changes of a scan are reported in a single notification to the {@link ChangeListener},
+ * grouped by subscriber, so that all the affected webapps can be handled together.
+ * Notifications are delivered one at a time on a dedicated thread.
+ */
+public abstract class AbstractFileWatcher {
+
+    private final Log log;
+
+    private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    private final Map<Path, Set<Subscription>> pathIndex = new HashMap<>();
+
+    private ExecutorService dispatcher;
+    private ChangeListener listener;
+
+    protected AbstractFileWatcher(final Log log) {
+        this.log = log;
+    }
+
+    public void setListener(final ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Watch the given files and directories (directories are watched recursively) and
+     * report any change in them under the given key. The paths that do not exist yet are
+     * watched once they are created.
+     *
+     * @param key the subscriber key, typically the project id
+     * @param files the files and directories to watch
+     * @throws IOException if the files cannot be watched
+     */
+    public synchronized void register(final String key, final List<File> files) throws IOException {
+        final Subscription subscription = new Subscription(key);
+        for (File file : files) {
+            final Path path = file.toPath().toAbsolutePath().normalize();
+            // a path that does not exist yet is most likely a directory still to be built
+            if (Files.isDirectory(path) || !Files.exists(path)) {
+                watchDirectory(path);
+            } else {
+                watchFile(path);
+            }
+            pathIndex.computeIfAbsent(path, p -> new LinkedHashSet<>()).add(subscription);
+        }
+        subscriptions.put(key, subscription);
+    }
+
+    /**
+     * Stop reporting changes to a subscriber, the changes happening while paused are kept
+     * and reported once resumed.
+     *
+     * @param key the subscriber key
+     */
+    public synchronized void pause(final String key) {
+        final Subscription subscription = subscriptions.get(key);
+        if (subscription != null) {
+            subscription.paused = true;
+        }
+    }
+
+    /**
+     * Start reporting changes to a subscriber again, starting with the changes collected
+     * while it was paused.
+     *
+     * @param key the subscriber key
+     */
+    public synchronized void resume(final String key) {
+        final Subscription subscription = subscriptions.get(key);
+        if (subscription != null) {
+            subscription.paused = false;
+            if (!subscription.pending.isEmpty()) {
+                flush();
+            }
+        }
+    }
+
+    public synchronized void start() throws Exception {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, getClass().getSimpleName() + "-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+        doStart();
+    }
+
+    public synchronized void stop() throws Exception {
+        doStop();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * @return the number of subscribers
+     */
+    public synchronized int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Start watching a directory tree, or a path that does not exist yet and is watched
+     * once created.
+     *
+     * @param dir the directory
+     * @throws IOException if the directory cannot be watched
+     */
+    protected abstract void watchDirectory(Path dir) throws IOException;
+
+    /**
+     * Start watching a single file.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be watched
+     */
+    protected abstract void watchFile(Path file) throws IOException;
+
+    protected abstract void doStart() throws Exception;
+
+    protected abstract void doStop() throws Exception;
+
+    /**
+     * Record changed paths for each subscriber they belong to.
+     *
+     * @param changed the changed paths
+     */
+    protected synchronized void collect(final Collection<Path> changed) {
+        for (Path path : changed) {
+            // walk up the parents so that the cost depends on the depth of the path,
+            // not on the number of subscribers or watched roots
+            for (Path p = path; p != null; p = p.getParent()) {
+                final Set<Subscription> owners = pathIndex.get(p);
+                if (owners != null) {
+                    for (Subscription subscription : owners) {
+                        subscription.pending.add(path.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify the listener of the changes collected so far, the changes of the paused
+     * subscribers are kept until they are resumed.
+     */
+    protected synchronized void flush() {
+        if (dispatcher == null || listener == null) {
+            return;
+        }
+        final Map<String, List<String>> changes = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions.values()) {
+            if (!subscription.paused && !subscription.pending.isEmpty()) {
+                changes.put(subscription.key, new ArrayList<>(subscription.pending));
+                subscription.pending.clear();
+            }
+        }
+        if (!changes.isEmpty()) {
+            dispatcher.execute(() -> notifyListener(changes));
+        }
+    }
+
+    protected Log getLog() {
+        return log;
+    }
+
+    private void notifyListener(final Map<String, List<String>> changes) {
+        synchronized (this) {
+            // paused since the flush: report the changes once resumed
+            changes.entrySet().removeIf(entry -> {
+                final Subscription subscription = subscriptions.get(entry.getKey());
+                if (subscription == null || !subscription.paused) {
+                    return false;
+                }
+                subscription.pending.addAll(entry.getValue());
+                return true;
+            });
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            listener.filesChanged(changes);
+        } catch (Exception e) {
+            getLog().error("Error notifying changes " + changes, e);
+        }
+    }
+
+    /**
+     * Receives the changes detected in a scan.
+     */
+    public interface ChangeListener {
+
+        /**
+         * @param changes the changed paths, by subscriber key
+         * @throws Exception if the changes cannot be handled
+         */
+        void filesChanged(Map<String, List<String>> changes) throws Exception;
+    }
+
+    private static class Subscription {
+        private final String key;
+        private final Set<String> pending = new LinkedHashSet<>();
+        private volatile boolean paused;
+
+        Subscription(final String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * AnnotationScanCache
+ *
+ * Remembers what the annotation parser reported for each scanned jar or class directory, so
+ * that a jar or directory that did not change does not have to be parsed again.
+ *
+ * A jar is unchanged if its size and last modified time did not change, or else if the hash of
+ * its central directory (entry names, sizes and CRCs) did not change. A class directory is
+ * unchanged if the hash of the names, sizes and last modified times of its class files did not
+ * change.
+ *
+ * The scans are kept in memory, shared by all the webapps of the JVM, and in a file of the
+ * temp directory of each webapp so that they survive a restart of Maven.
+ */
+public class AnnotationScanCache {
+
+    private static final Logger LOG = Log.getLogger(AnnotationScanCache.class);
+
+    public static final String CACHE_FILE_NAME = "annotation-scan.cache";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final Map<String, Scan> SHARED = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final Map<String, Scan> scans = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    /**
+     * @param directory the directory of the cache file, null to only cache in memory
+     */
+    public AnnotationScanCache(final File directory) {
+        this.file = directory != null ? new File(directory, CACHE_FILE_NAME) : null;
+        load();
+    }
+
+    /**
+     * @param location a jar or class directory
+     * @param javaPlatform the java platform of the parser
+     * @return the events recorded when the location was last scanned, null if it changed since
+     */
+    public List<Event> get(final File location, final int javaPlatform) {
+        final String key = key(location, javaPlatform);
+        Scan scan = scans.get(key);
+        if (scan == null) {
+            scan = SHARED.get(key);
+        }
+        if (scan == null) {
+            return null;
+        }
+        try {
+            if (location.isFile() && location.length() == scan.size && location.lastModified() == scan.lastModified) {
+                return remember(key, scan).events;
+            }
+            if (scan.hash.equals(hash(location))) {
+                // touched but not changed: remember the new time stamp to skip the hash next time
+                changed = true;
+                return remember(key, new Scan(location.isFile() ? location.length() : -1,
+                    location.isFile() ? location.lastModified() : -1,
+                    scan.hash,
+                    scan.events)).events;
+            }
+        } catch (IOException e) {
+            LOG.debug("Cannot check " + location, e);
+        }
+        return null;
+    }
+
+    /**
+     * @param location a jar or class directory
+     * @param javaPlatform the java platform of the parser
+     * @param events the events reported by the parser for the location
+     */
+    public void put(final File location, final int javaPlatform, final List<Event> events) {
+        try {
+            final Scan scan = new Scan(location.isFile() ? location.length() : -1,
+                location.isFile() ? location.lastModified() : -1,
+                hash(location),
+                Collections.unmodifiableList(new ArrayList<>(events)));
+            remember(key(location, javaPlatform), scan);
+            changed = true;
+        } catch (IOException e) {
+            LOG.debug("Cannot cache the scan of " + location, e);
+        }
+    }
+
+    /**
+     * Write the cache file if anything changed since it was read.
+     */
+    public void save() {
+        if (file == null || !changed) {
+            return;
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(FORMAT_VERSION);
+                final Map<String, Scan> sorted = new TreeMap<>(scans);
+                out.writeInt(sorted.size());
+                for (Map.Entry<String, Scan> entry : sorted.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            changed = false;
+        } catch (IOException e) {
+            LOG.warn("Cannot write " + file + ": " + e);
+            tmp.delete();
+        }
+    }
+
+    private Scan remember(final String key, final Scan scan) {
+        scans.put(key, scan);
+        SHARED.put(key, scan);
+        return scan;
+    }
+
+    private void load() {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String key = in.readUTF();
+                final Scan scan = Scan.read(in);
+                scans.put(key, scan);
+                SHARED.putIfAbsent(key, scan);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot read " + file + ", scanning again: " + e);
+            scans.clear();
+        }
+    }
+
+    private static String key(final File location, final int javaPlatform) {
+        return location.getAbsolutePath() + "|" + javaPlatform;
+    }
+
+    private static String hash(final File location) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (location.isDirectory()) {
+            final Path root = location.toPath();
+            final List<Path> classFiles = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(p -> p.toString().endsWith(CLASS_SUFFIX)).forEach(classFiles::add);
+            }
+            Collections.sort(classFiles);
+            for (Path p : classFiles) {
+                final File f = p.toFile();
+                update(digest, root.relativize(p) + "\t" + f.length() + "\t" + f.lastModified() + "\n");
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(location)) {
+                final Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    update(digest, entry.getName() + "\t" + entry.getSize() + "\t" + entry.getCrc() + "\n");
+                }
+            } catch (ZipException e) {
+                // not an archive, a single class file
+                try (InputStream in = Files.newInputStream(location.toPath())) {
+                    final byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, n);
+                    }
+                }
+            }
+        }
+        return String.format("%040x", new BigInteger(1, digest.digest()));
+    }
+
+    private static void update(final MessageDigest digest, final String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The recorded scan of a location.
+     */
+    private static class Scan {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final List<Event> events;
+
+        Scan(final long size, final long lastModified, final String hash, final List<Event> events) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.events = events;
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeUTF(hash);
+            out.writeInt(events.size());
+            for (Event event : events) {
+                event.write(out);
+            }
+        }
+
+        static Scan read(final DataInputStream in) throws IOException {
+            final long size = in.readLong();
+            final long lastModified = in.readLong();
+            final String hash = in.readUTF();
+            final int count = in.readInt();
+            final List<Event> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                events.add(Event.read(in));
+            }
+            return new Scan(size, lastModified, hash, Collections.unmodifiableList(events));
+        }
+    }
+
+    /**
+     * Something reported by the parser to its handlers: a class, an annotated method or field,
+     * or an annotation, described by its int and string values.
+     */
+    public static final class Event {
+        public static final int CLASS = 0;
+        public static final int METHOD = 1;
+        public static final int FIELD = 2;
+        public static final int CLASS_ANNOTATION = 3;
+        public static final int METHOD_ANNOTATION = 4;
+        public static final int FIELD_ANNOTATION = 5;
+
+        private static final int NULL = 0;
+        private static final int STRING = 1;
+        private static final int INTEGER = 2;
+        private static final int LONG = 3;
+        private static final int FLOAT = 4;
+        private static final int DOUBLE = 5;
+
+        private final int kind;
+        private final int[] ints;
+        private final String[] strings;
+        private final Object value;
+
+        /**
+         * @param kind the kind of event
+         * @param ints the int values
+         * @param strings the string values, may contain nulls
+         * @param value the constant value of a field: null, a String, an Integer, a Long, a Float or a Double
+         */
+        public Event(final int kind, final int[] ints, final String[] strings, final Object value) {
+            this.kind = kind;
+            this.ints = ints;
+            this.strings = strings;
+            this.value = value;
+        }
+
+        public int getKind() {
+            return kind;
+        }
+
+        public int getInt(final int i) {
+            return ints[i];
+        }
+
+        public String getString(final int i) {
+            return strings[i];
+        }
+
+        public String[] getStrings(final int from, final int count) {
+            if (count < 0) {
+                return null;
+            }
+            final String[] result = new String[count];
+            System.arraycopy(strings, from, result, 0, count);
+            return result;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeByte(kind);
+            out.writeByte(ints.length);
+            for (int i : ints) {
+                out.writeInt(i);
+            }
+            out.writeShort(strings.length);
+            for (String s : strings) {
+                out.writeBoolean(s != null);
+                if (s != null) {
+                    out.writeUTF(s);
+                }
+            }
+            if (value instanceof String) {
+                out.writeByte(STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else {
+                out.writeByte(NULL);
+            }
+        }
+
+        static Event read(final DataInputStream in) throws IOException {
+            final int kind = in.readByte();
+            final int[] ints = new int[in.readByte()];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = in.readInt();
+            }
+            final String[] strings = new String[in.readShort()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readBoolean() ? in.readUTF() : null;
+            }
+            final Object value;
+            switch (in.readByte()) {
+                case STRING:
+                    value = in.readUTF();
+                    break;
+                case INTEGER:
+                    value = in.readInt();
+                    break;
+                case LONG:
+                    value = in.readLong();
+                    break;
+                case FLOAT:
+                    value = in.readFloat();
+                    break;
+                case DOUBLE:
+                    value = in.readDouble();
+                    break;
+                default:
+                    value = null;
+            }
+            return new Event(kind, ints, strings, value);
+        }
+    }
+}
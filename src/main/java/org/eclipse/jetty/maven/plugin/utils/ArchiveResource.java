@@ -0,0 +1,307 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * ArchiveResource
+ *
+ * A read only resource served straight from an archive, without extracting it.
+ *
+ * The archive is kept open and its central directory is indexed in memory once: only the
+ * selected entries are indexed, and they are placed under an optional target path, so the
+ * resource looks like the directory the archive would have been unpacked to.
+ *
+ * The archives are shared by the resources opened on the same file with the same selection,
+ * an archive is closed when the file changes and it is opened again.
+ */
+public class ArchiveResource extends Resource {
+
+    private static final Map<String, Archive> ARCHIVES = new ConcurrentHashMap<>();
+
+    private final Archive archive;
+    private final String path;
+
+    private ArchiveResource(final Archive archive, final String path) {
+        this.archive = archive;
+        this.path = path;
+    }
+
+    /**
+     * @param file the archive
+     * @param selector the entries to serve
+     * @param selectionKey a description of the selector
+     * @param targetPath the path to serve the entries under, may be null
+     * @return the root of the archive
+     * @throws IOException if the archive cannot be read
+     */
+    public static ArchiveResource open(final File file,
+                                       final Predicate<String> selector,
+                                       final String selectionKey,
+                                       final String targetPath) throws IOException {
+        final String prefix = normalizeTargetPath(targetPath);
+        final String key = file.getAbsolutePath() + "|" + selectionKey + "|" + prefix;
+        synchronized (ARCHIVES) {
+            Archive archive = ARCHIVES.get(key);
+            if (archive != null && !archive.isCurrent(file)) {
+                archive.close();
+                archive = null;
+            }
+            if (archive == null) {
+                archive = new Archive(file, selector, prefix);
+                ARCHIVES.put(key, archive);
+            }
+            return new ArchiveResource(archive, "");
+        }
+    }
+
+    private static String normalizeTargetPath(final String targetPath) {
+        if (targetPath == null) {
+            return "";
+        }
+        String prefix = URIUtil.canonicalPath(targetPath.replace('\\', '/'));
+        if (prefix == null) {
+            throw new IllegalArgumentException("Invalid target path " + targetPath);
+        }
+        while (prefix.startsWith("/")) {
+            prefix = prefix.substring(1);
+        }
+        return prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    /**
+     * @param path a path of the archive, relative to this resource
+     * @return true if a file or directory of the archive starts with this path
+     */
+    public boolean contains(final String path) {
+        final String prefix = this.path + path;
+        for (String name : archive.files.keySet()) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the archive file
+     */
+    public File getArchiveFile() {
+        return archive.file;
+    }
+
+    @Override
+    public boolean isContainedIn(final Resource r) throws MalformedURLException {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // the archive is shared by all the resources opened on it
+    }
+
+    @Override
+    public boolean exists() {
+        return isDirectory() || archive.files.containsKey(path);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return archive.directories.containsKey(path);
+    }
+
+    @Override
+    public long lastModified() {
+        final ZipEntry entry = archive.files.get(path);
+        if (entry != null) {
+            return entry.getTime();
+        }
+        return isDirectory() ? archive.lastModified : -1;
+    }
+
+    @Override
+    public long length() {
+        final ZipEntry entry = archive.files.get(path);
+        return entry != null ? entry.getSize() : -1;
+    }
+
+    @Override
+    public URI getURI() {
+        // the name of the entry in the archive, without the target path
+        String name = path.startsWith(archive.prefix) ? path.substring(archive.prefix.length()) : "";
+        return URI.create("jar:" + archive.file.toURI() + "!/" + URIUtil.encodePath(name));
+    }
+
+    @Override
+    @Deprecated
+    public URL getURL() {
+        try {
+            return getURI().toURL();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public File getFile() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return getURI().toString();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        final ZipEntry entry = archive.files.get(path);
+        if (entry == null) {
+            throw new FileNotFoundException(getName());
+        }
+        return archive.zip.getInputStream(entry);
+    }
+
+    @Override
+    public ReadableByteChannel getReadableByteChannel() {
+        return null;
+    }
+
+    @Override
+    public boolean delete() throws SecurityException {
+        throw new SecurityException("Read only archive " + archive.file);
+    }
+
+    @Override
+    public boolean renameTo(final Resource dest) throws SecurityException {
+        throw new SecurityException("Read only archive " + archive.file);
+    }
+
+    @Override
+    public String[] list() {
+        final SortedSet<String> children = archive.directories.get(path);
+        return children != null ? children.toArray(new String[0]) : null;
+    }
+
+    @Override
+    public Resource addPath(final String path) throws IOException {
+        if (path == null) {
+            throw new MalformedURLException("null path");
+        }
+        String canonical = URIUtil.canonicalPath(path);
+        if (canonical == null) {
+            throw new MalformedURLException(path);
+        }
+        while (canonical.startsWith("/")) {
+            canonical = canonical.substring(1);
+        }
+        if (canonical.isEmpty()) {
+            return this;
+        }
+        String name = (this.path.isEmpty() || this.path.endsWith("/") ? this.path : this.path + "/") + canonical;
+        // the directories are indexed with a trailing slash, whatever the path asked for
+        if (!archive.files.containsKey(name)) {
+            final String directory = name.endsWith("/") ? name : name + "/";
+            if (archive.directories.containsKey(directory)) {
+                name = directory;
+            }
+        }
+        return new ArchiveResource(archive, name);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArchiveResource)) {
+            return false;
+        }
+        final ArchiveResource that = (ArchiveResource) o;
+        return archive == that.archive && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(archive.file, path);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * An open archive and the index of its selected entries.
+     */
+    private static class Archive {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final String prefix;
+        private final ZipFile zip;
+        private final Map<String, ZipEntry> files = new HashMap<>();
+        private final Map<String, SortedSet<String>> directories = new HashMap<>();
+
+        Archive(final File file, final Predicate<String> selector, final String prefix) throws IOException {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.prefix = prefix;
+            this.zip = new ZipFile(file);
+
+            addDirectory("");
+            for (ZipEntry entry : ZipExtractor.select(zip, selector)) {
+                final String name = prefix + entry.getName().replace('\\', '/');
+                if (entry.isDirectory()) {
+                    addDirectory(name.endsWith("/") ? name : name + "/");
+                } else {
+                    files.put(name, entry);
+                    addToParent(name);
+                }
+            }
+        }
+
+        boolean isCurrent(final File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        private void addDirectory(final String name) {
+            if (directories.putIfAbsent(name, new TreeSet<>()) == null && !name.isEmpty()) {
+                addToParent(name);
+            }
+        }
+
+        private void addToParent(final String name) {
+            final int i = name.lastIndexOf('/', name.length() - 2);
+            final String parent = name.substring(0, i + 1);
+            addDirectory(parent);
+            directories.get(parent).add(name.substring(i + 1));
+        }
+
+        void close() {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // ignore, the archive is not used anymore
+            }
+        }
+    }
+}
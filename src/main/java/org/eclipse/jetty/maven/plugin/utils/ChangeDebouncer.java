@@ -0,0 +1,115 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * ChangeDebouncer
+ *
+ * Coalesces the change notifications produced while a build is writing files: the changes
+ * are collected until no new one arrived for the quiet period, then delivered to the target
+ * listener in a single notification. The delivery is never delayed more than the max delay
+ * after the first collected change, so a tree that keeps changing still gets reloaded.
+ *
+ * The target is always invoked on the same thread, one notification at a time. The changes
+ * reported while the target runs are delivered in the next notification, provided the source
+ * keeps reporting them: the file watcher of run-all keeps the changes of a restarting webapp
+ * until it is resumed, while the scanner of the main webapp, stopped during its restart,
+ * does not report the changes made meanwhile.
+ */
+public class ChangeDebouncer implements AbstractFileWatcher.ChangeListener {
+
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final AbstractFileWatcher.ChangeListener target;
+    private final Log log;
+
+    private final ScheduledExecutorService executor;
+
+    private Map<String, Set<String>> pending = new LinkedHashMap<>();
+    private long firstChangeNanos;
+    private ScheduledFuture<?> scheduled;
+    private boolean stopped;
+
+    public ChangeDebouncer(final long quietMillis,
+                           final long maxDelayMillis,
+                           final AbstractFileWatcher.ChangeListener target,
+                           final Log log) {
+        this.quietMillis = quietMillis;
+        this.maxDelayMillis = Math.max(quietMillis, maxDelayMillis);
+        this.target = target;
+        this.log = log;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "ChangeDebouncer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public synchronized void filesChanged(final Map<String, List<String>> changes) {
+        if (stopped) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            firstChangeNanos = now;
+        }
+        for (Map.Entry<String, List<String>> entry : changes.entrySet()) {
+            pending.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+        }
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        final long waited = TimeUnit.NANOSECONDS.toMillis(now - firstChangeNanos);
+        final long delay = Math.min(quietMillis, Math.max(0L, maxDelayMillis - waited));
+        scheduled = executor.schedule(this::deliver, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the thread of the debouncer, the changes not delivered yet are dropped.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        pending = new LinkedHashMap<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        executor.shutdownNow();
+    }
+
+    private void deliver() {
+        final Map<String, List<String>> changes = new LinkedHashMap<>();
+        final long waited;
+        synchronized (this) {
+            if (stopped || pending.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+                changes.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstChangeNanos);
+            pending = new LinkedHashMap<>();
+            scheduled = null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Delivering changes collected over " + waited + "ms: " + changes);
+        }
+        try {
+            target.filesChanged(changes);
+        } catch (Exception e) {
+            log.error("Error handling changes " + changes, e);
+        }
+    }
+}
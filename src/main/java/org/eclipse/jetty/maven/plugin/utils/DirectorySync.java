@@ -0,0 +1,266 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jetty.util.IO;
+
+/**
+ * DirectorySync
+ *
+ * Brings a directory in line with what is put into it, writing only what differs: a file is
+ * left alone if it has the size and last modified time of its source, or else the same
+ * content, in which case only its last modified time is updated. Once everything has been
+ * put, the files and directories that were not put are deleted.
+ *
+ * Files that are never modified in place, like jars of the local repository, can be hard
+ * linked instead of copied, when the file system allows it.
+ */
+public class DirectorySync {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Path target;
+    private final Set<Path> expected = new HashSet<>();
+
+    private int written;
+    private int linked;
+    private int unchanged;
+    private int deleted;
+    private long bytesWritten;
+    private long bytesNotWritten;
+
+    /**
+     * @param target the directory to synchronize
+     * @throws IOException if the directory cannot be created
+     */
+    public DirectorySync(final Path target) throws IOException {
+        this.target = target.toAbsolutePath().normalize();
+        Files.createDirectories(this.target);
+    }
+
+    /**
+     * Put a copy of a directory tree.
+     *
+     * @param source the directory
+     * @param exclude the files of the directory not to put
+     * @throws IOException if a file cannot be copied
+     */
+    public void copyTree(final Path source, final Predicate<Path> exclude) throws IOException {
+        Files.walkFileTree(source, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                directory(source.relativize(dir).toString());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                if (!exclude.test(file)) {
+                    copy(file, source.relativize(file).toString(), false);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Put a directory.
+     *
+     * @param relativePath the path of the directory
+     * @return the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public Path directory(final String relativePath) throws IOException {
+        final Path dir = resolve(relativePath);
+        if (Files.exists(dir, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            Files.delete(dir);
+        }
+        return Files.createDirectories(dir);
+    }
+
+    /**
+     * Put a file.
+     *
+     * @param source the file
+     * @param relativePath the path of the copy
+     * @param link true to hard link the file rather than copy it, if possible
+     * @throws IOException if the file cannot be copied
+     */
+    public void copy(final Path source, final String relativePath, final boolean link) throws IOException {
+        final Path dest = resolve(relativePath);
+        final BasicFileAttributes sourceAttrs = Files.readAttributes(source, BasicFileAttributes.class);
+        if (Files.exists(dest, LinkOption.NOFOLLOW_LINKS)) {
+            final BasicFileAttributes destAttrs = Files.readAttributes(dest, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (destAttrs.isRegularFile() && destAttrs.size() == sourceAttrs.size()) {
+                if (destAttrs.lastModifiedTime().equals(sourceAttrs.lastModifiedTime()) || Files.isSameFile(source, dest)) {
+                    unchanged(destAttrs.size());
+                    return;
+                }
+                if (sameContent(source, dest)) {
+                    Files.setLastModifiedTime(dest, sourceAttrs.lastModifiedTime());
+                    unchanged(destAttrs.size());
+                    return;
+                }
+            }
+            IO.delete(dest.toFile());
+        }
+        Files.createDirectories(dest.getParent());
+
+        if (link) {
+            try {
+                Files.createLink(dest, source);
+                linked++;
+                bytesNotWritten += sourceAttrs.size();
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                // another file system, copy it
+            }
+        }
+        Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+        written++;
+        bytesWritten += sourceAttrs.size();
+    }
+
+    /**
+     * Put a file with the given content.
+     *
+     * @param content the content of the file
+     * @param relativePath the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final byte[] content, final String relativePath) throws IOException {
+        final Path dest = resolve(relativePath);
+        if (Files.isRegularFile(dest, LinkOption.NOFOLLOW_LINKS)
+            && Files.size(dest) == content.length
+            && Arrays.equals(Files.readAllBytes(dest), content)) {
+            unchanged(content.length);
+            return;
+        }
+        if (Files.exists(dest, LinkOption.NOFOLLOW_LINKS)) {
+            IO.delete(dest.toFile());
+        }
+        Files.createDirectories(dest.getParent());
+        Files.write(dest, content);
+        written++;
+        bytesWritten += content.length;
+    }
+
+    /**
+     * Keep a file written by other means.
+     *
+     * @param relativePath the path of the file
+     * @return the file
+     */
+    public Path keep(final String relativePath) {
+        return resolve(relativePath);
+    }
+
+    /**
+     * Delete the files and directories that were not put.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    public void deleteOthers() throws IOException {
+        Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                if (!expected.contains(target.relativize(file))) {
+                    Files.delete(file);
+                    deleted++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                if (!dir.equals(target) && !expected.contains(target.relativize(dir))) {
+                    Files.delete(dir);
+                    deleted++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * @return what the synchronization wrote and avoided writing
+     */
+    public String getSummary() {
+        return written + " files written (" + bytesWritten + " bytes), "
+            + linked + " linked, "
+            + unchanged + " unchanged, "
+            + deleted + " deleted, "
+            + bytesNotWritten + " bytes not written";
+    }
+
+    private void unchanged(final long size) {
+        unchanged++;
+        bytesNotWritten += size;
+    }
+
+    private Path resolve(final String relativePath) {
+        final Path path = target.resolve(relativePath).normalize();
+        if (!path.startsWith(target)) {
+            throw new IllegalArgumentException(relativePath + " is outside of " + target);
+        }
+        for (Path p = target.relativize(path); p != null && !p.toString().isEmpty(); p = p.getParent()) {
+            expected.add(p);
+        }
+        return path;
+    }
+
+    private static boolean sameContent(final Path a, final Path b) throws IOException {
+        try (InputStream inA = new BufferedInputStream(Files.newInputStream(a), BUFFER_SIZE);
+             InputStream inB = new BufferedInputStream(Files.newInputStream(b), BUFFER_SIZE)) {
+            final byte[] bufferA = new byte[BUFFER_SIZE];
+            final byte[] bufferB = new byte[BUFFER_SIZE];
+            while (true) {
+                final int n = readFully(inA, bufferA);
+                if (n != readFully(inB, bufferB)) {
+                    return false;
+                }
+                if (n == 0) {
+                    return true;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (bufferA[i] != bufferB[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes read, less than the size of the buffer only at the end of the stream
+     */
+    private static int readFully(final InputStream in, final byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            final int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
@@ -1,6 +1,7 @@
 package org.eclipse.jetty.maven.plugin.utils;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -18,40 +19,61 @@ public class FilesHelper {
     private FilesHelper() {
     }
 
+    /**
+     * Remove the files already present earlier in the list, in a single pass.
+     *
+     * @param files the files, the first occurrence of each one is kept
+     */
     public static void removeDuplicates(final List<File> files) {
         if (files != null && files.size() > 0) {
-            getLog().debug("removeDuplicates - before " + files);
+            final Log log = getLog();
+            final boolean debug = log.isDebugEnabled();
+            if (debug) {
+                log.debug("removeDuplicates - before " + files);
+            }
             final Set<File> existingFiles = new HashSet<>();
-            int idx = 0;
-            while (idx < files.size()) {
-                final File file = files.get(idx);
-                if (existingFiles.contains(file)) {
-                    files.remove(idx);
-                    getLog().debug("remove " + file);
-                } else {
-                    existingFiles.add(file);
-                    idx += 1;
+            files.removeIf(file -> {
+                if (existingFiles.add(file)) {
+                    return false;
+                }
+                if (debug) {
+                    log.debug("remove " + file);
                 }
+                return true;
+            });
+            if (debug) {
+                log.debug("removeDuplicates - after " + files);
             }
-            getLog().debug("removeDuplicates - after " + files);
         }
     }
 
+    /**
+     * Remove the excluded files, in a single pass.
+     *
+     * @param files the files
+     * @param excludedFiles the files to remove
+     */
     public static void removeList(final List<File> files,
-                                  final List<File> excludedFiles) {
+                                  final Collection<File> excludedFiles) {
         if (files != null && files.size() > 0 && excludedFiles != null && excludedFiles.size() > 0) {
-            getLog().debug("removeList - before " + files);
-            int idx = 0;
-            while (idx < files.size()) {
-                final File file = files.get(idx);
-                if (excludedFiles.contains(file)) {
-                    files.remove(idx);
-                    getLog().debug("remove " + file);
-                } else {
-                    idx += 1;
+            final Log log = getLog();
+            final boolean debug = log.isDebugEnabled();
+            if (debug) {
+                log.debug("removeList - before " + files);
+            }
+            final Set<File> excluded = excludedFiles instanceof Set ? (Set<File>) excludedFiles : new HashSet<>(excludedFiles);
+            files.removeIf(file -> {
+                if (!excluded.contains(file)) {
+                    return false;
+                }
+                if (debug) {
+                    log.debug("remove " + file);
                 }
+                return true;
+            });
+            if (debug) {
+                log.debug("removeList - after " + files);
             }
-            getLog().debug("removeList - after " + files);
         }
     }
 
@@ -0,0 +1,97 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * HotSwapAgent
+ *
+ * Gets the {@link Instrumentation} of the java agent of the plugin jar, the
+ * {@link InstrumentationHolder}, so that changed classes can be redefined.
+ *
+ * The agent is either given to the Maven JVM with -javaagent:/path/to/jetty-maven-plugin.jar
+ * (e.g. in MAVEN_OPTS) or attached on demand to the running JVM, which requires a JDK
+ * (and -Djdk.attach.allowAttachSelf=true starting from Java 9).
+ *
+ * The agent class is loaded by the system class loader and not by the plugin class loader, so
+ * the instrumentation is looked up reflectively in the copy of the holder of the system class loader.
+ */
+public class HotSwapAgent {
+
+    /**
+     * Get the instrumentation, attaching the agent to the running JVM if needed.
+     *
+     * @param log the log
+     * @return the instrumentation or null if the agent cannot be attached
+     */
+    public static synchronized Instrumentation getInstrumentation(final Log log) {
+        Instrumentation instrumentation = getAgentInstrumentation();
+        if (instrumentation == null) {
+            try {
+                attach();
+                instrumentation = getAgentInstrumentation();
+            } catch (Exception | LinkageError e) {
+                log.warn("Cannot attach the hot swap agent, start Maven with -javaagent:" + getAgentJar()
+                    + " to enable class redefinition: " + e);
+                log.debug(e);
+            }
+        }
+        if (instrumentation != null && !instrumentation.isRedefineClassesSupported()) {
+            log.warn("The JVM does not support class redefinition");
+            return null;
+        }
+        return instrumentation;
+    }
+
+    private static Instrumentation getAgentInstrumentation() {
+        try {
+            final Class<?> holder = Class.forName(InstrumentationHolder.class.getName(), true, ClassLoader.getSystemClassLoader());
+            return (Instrumentation) holder.getMethod("getInstrumentation").invoke(null);
+        } catch (ClassNotFoundException e) {
+            // the plugin jar is only on the system class path once the agent is loaded
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void attach() throws Exception {
+        final Class<?> vmClass = loadVirtualMachineClass();
+        // the runtime name is "pid@hostname" on the JVMs providing the attach api
+        final String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        final Object vm = vmClass.getMethod("attach", String.class).invoke(null, pid);
+        try {
+            vmClass.getMethod("loadAgent", String.class).invoke(vm, getAgentJar());
+        } finally {
+            vmClass.getMethod("detach").invoke(vm);
+        }
+    }
+
+    private static Class<?> loadVirtualMachineClass() throws Exception {
+        try {
+            return ClassLoader.getSystemClassLoader().loadClass("com.sun.tools.attach.VirtualMachine");
+        } catch (ClassNotFoundException e) {
+            // java 8: the attach api lives in the tools.jar of the jdk
+            final File toolsJar = new File(System.getProperty("java.home"), "../lib/tools.jar");
+            if (!toolsJar.isFile()) {
+                throw e;
+            }
+            final URLClassLoader loader = new URLClassLoader(new URL[] {toolsJar.toURI().toURL()},
+                ClassLoader.getSystemClassLoader());
+            return loader.loadClass("com.sun.tools.attach.VirtualMachine");
+        }
+    }
+
+    private static String getAgentJar() {
+        try {
+            return new File(HotSwapAgent.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (Exception e) {
+            return "jetty-maven-plugin.jar";
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * HotSwapper
+ *
+ * Redefines in place the classes of a webapp whose class files changed, so that a method
+ * body change does not require to restart the whole context. The redefinition is all or
+ * nothing: if any of the changes cannot be applied this way (a change outside the classes
+ * directory, a deleted class, a change of the class schema rejected by the JVM, ...)
+ * nothing is redefined and the caller is expected to restart the webapp.
+ */
+public class HotSwapper {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Log log;
+
+    public HotSwapper(final Log log) {
+        this.log = log;
+    }
+
+    /**
+     * @param classesDirectories the class directories of the webapp
+     * @param classLoader the class loader of the webapp
+     * @param changes the changed files
+     * @return true if all the changes have been applied by redefining classes
+     */
+    public boolean hotSwap(final List<File> classesDirectories, final ClassLoader classLoader, final List<String> changes) {
+        if (classLoader == null) {
+            return false;
+        }
+        final List<Path> classesPaths = new ArrayList<>();
+        for (File dir : classesDirectories) {
+            if (dir != null && dir.isDirectory()) {
+                classesPaths.add(dir.toPath().toAbsolutePath().normalize());
+            }
+        }
+        final Map<String, Path> classFiles = new HashMap<>();
+        for (String change : changes) {
+            final Path path = new File(change).toPath().toAbsolutePath().normalize();
+            if (Files.isDirectory(path)) {
+                continue;
+            }
+            final Path classesPath = findClassesPath(classesPaths, path);
+            if (classesPath == null || !path.toString().endsWith(CLASS_SUFFIX) || !Files.isRegularFile(path)) {
+                log.debug("Cannot hot swap " + change);
+                return false;
+            }
+            final String relative = classesPath.relativize(path).toString();
+            final String className = relative.substring(0, relative.length() - CLASS_SUFFIX.length())
+                .replace(File.separatorChar, '.');
+            classFiles.put(className, path);
+        }
+        if (classFiles.isEmpty()) {
+            return false;
+        }
+
+        final Instrumentation instrumentation = HotSwapAgent.getInstrumentation(log);
+        if (instrumentation == null) {
+            return false;
+        }
+
+        try {
+            final List<ClassDefinition> definitions = new ArrayList<>();
+            for (Class<?> loaded : instrumentation.getInitiatedClasses(classLoader)) {
+                final Path classFile = classFiles.get(loaded.getName());
+                if (classFile != null && loaded.getClassLoader() == classLoader) {
+                    definitions.add(new ClassDefinition(loaded, Files.readAllBytes(classFile)));
+                }
+            }
+            // classes not loaded yet will be read from the classes directory when first used
+            if (!definitions.isEmpty()) {
+                instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+            }
+            log.info("Hot swapped " + definitions.size() + " classes (" + (classFiles.size() - definitions.size())
+                + " not loaded yet)");
+            return true;
+        } catch (Exception | LinkageError e) {
+            log.info("Hot swap not possible, restarting: " + e);
+            return false;
+        }
+    }
+
+    private static Path findClassesPath(final List<Path> classesPaths, final Path path) {
+        for (Path classesPath : classesPaths) {
+            if (path.startsWith(classesPath)) {
+                return classesPath;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,169 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * IncrementalUnpacker
+ *
+ * Unpacks an archive into a directory, keeping next to it a manifest with the name,
+ * size and CRC of every unpacked entry and a fingerprint of the archive content (computed
+ * from its central directory, so without reading the entries).
+ *
+ * When the fingerprint did not change nothing is done at all; otherwise only the added
+ * and changed entries are written and the entries not in the archive anymore are deleted.
+ */
+public class IncrementalUnpacker {
+
+    private static final String FINGERPRINT_PREFIX = "#fingerprint ";
+
+    private final Log log;
+    private final ZipExtractor extractor;
+
+    public IncrementalUnpacker(final Log log) {
+        this(log, new ZipExtractor());
+    }
+
+    public IncrementalUnpacker(final Log log, final ZipExtractor extractor) {
+        this.log = log;
+        this.extractor = extractor;
+    }
+
+    /**
+     * @param archive the archive to unpack
+     * @param unpackDir the directory to unpack to
+     * @param manifestFile the manifest of the previous unpacking
+     * @param selector the entries to unpack
+     * @param selectorKey a description of the selector, the archive is unpacked again if it changes
+     * @throws IOException if the archive cannot be unpacked
+     */
+    public void unpack(final File archive,
+                       final File unpackDir,
+                       final File manifestFile,
+                       final Predicate<String> selector,
+                       final String selectorKey) throws IOException {
+        final long start = System.nanoTime();
+        try (ZipFile zip = new ZipFile(archive)) {
+            final Map<String, ZipEntry> entries = new TreeMap<>();
+            for (ZipEntry entry : ZipExtractor.select(zip, selector)) {
+                entries.put(entry.getName(), entry);
+            }
+
+            final String fingerprint = fingerprint(entries, selectorKey);
+            final Map<String, String> previous = readManifest(manifestFile, unpackDir);
+            if (fingerprint.equals(previous.get(FINGERPRINT_PREFIX))) {
+                log.debug("Overlay " + archive.getName() + " unchanged, skipping unpack of " + entries.size() + " entries");
+                return;
+            }
+            previous.remove(FINGERPRINT_PREFIX);
+
+            final Map<String, String> current = new LinkedHashMap<>();
+            final List<ZipEntry> changed = new ArrayList<>();
+            for (ZipEntry entry : entries.values()) {
+                if (entry.isDirectory()) {
+                    changed.add(entry);
+                    continue;
+                }
+                final String signature = signature(entry);
+                current.put(entry.getName(), signature);
+                final File file = new File(unpackDir, entry.getName());
+                if (!signature.equals(previous.get(entry.getName())) || !file.isFile() || file.length() != entry.getSize()) {
+                    changed.add(entry);
+                }
+            }
+            final int written = extractor.extract(zip, changed, unpackDir);
+
+            int deleted = 0;
+            for (String name : previous.keySet()) {
+                if (!current.containsKey(name) && new File(unpackDir, name).delete()) {
+                    deleted++;
+                }
+            }
+
+            writeManifest(manifestFile, fingerprint, current);
+            log.info("Unpacked overlay " + archive.getName() + ": " + written + " entries written, "
+                + deleted + " deleted, " + (current.size() - written) + " unchanged in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+    }
+
+    private static String signature(final ZipEntry entry) {
+        return entry.getSize() + "\t" + Long.toHexString(entry.getCrc());
+    }
+
+    private static String fingerprint(final Map<String, ZipEntry> entries, final String selectorKey) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(selectorKey.getBytes(StandardCharsets.UTF_8));
+            for (ZipEntry entry : entries.values()) {
+                digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update(signature(entry).getBytes(StandardCharsets.UTF_8));
+            }
+            return String.format("%040x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the entries of the manifest, with the fingerprint under {@link #FINGERPRINT_PREFIX};
+     * empty if there is no manifest or the unpack directory is missing
+     */
+    private Map<String, String> readManifest(final File manifestFile, final File unpackDir) {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        if (!manifestFile.isFile() || !unpackDir.isDirectory()) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(FINGERPRINT_PREFIX)) {
+                    entries.put(FINGERPRINT_PREFIX, line.substring(FINGERPRINT_PREFIX.length()));
+                    continue;
+                }
+                // size <tab> crc <tab> name
+                final int i = line.indexOf('\t', line.indexOf('\t') + 1);
+                if (i > 0) {
+                    entries.put(line.substring(i + 1), line.substring(0, i));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read " + manifestFile + ", unpacking again: " + e);
+            entries.clear();
+        }
+        return entries;
+    }
+
+    private static void writeManifest(final File manifestFile,
+                                      final String fingerprint,
+                                      final Map<String, String> entries) throws IOException {
+        final File tmp = new File(manifestFile.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(FINGERPRINT_PREFIX + fingerprint);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
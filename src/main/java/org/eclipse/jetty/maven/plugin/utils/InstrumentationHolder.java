@@ -0,0 +1,36 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * InstrumentationHolder
+ *
+ * The java agent of the plugin jar (see the Premain-Class and Agent-Class entries of its
+ * manifest), it only keeps hold of the {@link Instrumentation} for the {@link HotSwapAgent}.
+ *
+ * The agent is loaded by the system class loader, which does not see the dependencies of the
+ * plugin, so this class depends on nothing but the JDK. The plugin class loader may have its
+ * own copy of the class, the plugin looks the instrumentation up in the system copy.
+ */
+public final class InstrumentationHolder {
+
+    private static volatile Instrumentation instrumentation;
+
+    private InstrumentationHolder() {
+    }
+
+    public static void premain(final String args, final Instrumentation instrumentation) {
+        InstrumentationHolder.instrumentation = instrumentation;
+    }
+
+    public static void agentmain(final String args, final Instrumentation instrumentation) {
+        premain(args, instrumentation);
+    }
+
+    /**
+     * @return the instrumentation given to the agent, null if the agent was not loaded
+     */
+    public static Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+}
@@ -0,0 +1,120 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * JettyHomeCache
+ *
+ * Unpacks the jetty-home distributions once, in a directory outside of the build directories
+ * named after the SHA-1 of the archive, and reuses the unpacked distribution afterwards.
+ *
+ * A distribution is unpacked to a temporary directory moved in place when it is complete, so
+ * that concurrent builds never see a partial distribution: the first one to finish wins and
+ * the others drop their copy. The unpacked distributions are shared and must not be modified,
+ * jetty only writes to its jetty.base.
+ */
+public class JettyHomeCache {
+
+    private static final Logger LOG = Log.getLogger(JettyHomeCache.class);
+
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private final File root;
+
+    /**
+     * @param root the directory of the cache
+     */
+    public JettyHomeCache(final File root) {
+        this.root = root;
+    }
+
+    /**
+     * @param archive the jetty-home archive
+     * @param directoryName the top directory of the archive
+     * @return the unpacked distribution
+     * @throws IOException if the archive cannot be unpacked to the cache
+     */
+    public File unpack(final File archive, final String directoryName) throws IOException {
+        final String hash = hash(archive);
+        final File entry = new File(root, hash);
+        final File home = new File(entry, directoryName);
+        if (isComplete(entry) && home.isDirectory()) {
+            LOG.debug("Reusing {} unpacked to {}", archive, entry);
+            return home;
+        }
+
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Cannot create " + root);
+        }
+        final Path tmp = Files.createTempDirectory(root.toPath(), hash + ".");
+        try {
+            final long start = System.nanoTime();
+            final int count = new ZipExtractor().extractAll(archive, tmp.toFile(), name -> true);
+            Files.createFile(tmp.resolve(COMPLETE_MARKER));
+            if (!moveInPlace(tmp, entry) && !isComplete(entry)) {
+                // the leftover of an interrupted cleanup
+                IO.delete(entry);
+                Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            LOG.info("Unpacked {} files of {} to {} in {}ms", count, archive.getName(), entry, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (Files.exists(tmp)) {
+                IO.delete(tmp.toFile());
+            }
+        }
+
+        if (!home.isDirectory()) {
+            throw new IOException(archive + " does not contain " + directoryName);
+        }
+        return home;
+    }
+
+    /**
+     * @return false if the entry already exists, unpacked by another build
+     */
+    private static boolean moveInPlace(final Path tmp, final File entry) throws IOException {
+        try {
+            Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            // depending on the platform, a plain FileSystemException when the target is not empty
+            if (!entry.exists()) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    private static boolean isComplete(final File entry) {
+        return new File(entry, COMPLETE_MARKER).isFile();
+    }
+
+    private static String hash(final File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            final byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return String.format("%040x", new BigInteger(1, digest.digest()));
+    }
+}
@@ -20,27 +20,90 @@ package org.eclipse.jetty.maven.plugin.utils;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.WeakHashMap;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 
 public class MavenProjectHelper
 {
+    /**
+     * The artifact to project index of each session, shared by the webapps and the restarts.
+     */
+    private static final Map<MavenSession, Map<String, MavenProject>> SESSION_INDEXES = new WeakHashMap<>();
 
     private final Map<String, MavenProject> artifactToLocalProjectMap;
 
     public MavenProjectHelper(MavenProject project)
     {
-        Set<MavenProject> mavenProjects = resolveProjectDependencies(project, new HashSet<>());
-        artifactToLocalProjectMap = mavenProjects.stream()
-            .collect(Collectors.toMap(MavenProject::getId, Function.identity()));
-        artifactToLocalProjectMap.put(project.getArtifact().getId(), project);
+        this(buildIndex(Collections.singleton(project)), project);
+    }
+
+    private MavenProjectHelper(Map<String, MavenProject> index, MavenProject project)
+    {
+        String id = project.getArtifact().getId();
+        if (index.get(id) == project)
+        {
+            artifactToLocalProjectMap = index;
+        }
+        else
+        {
+            Map<String, MavenProject> map = new HashMap<>(index);
+            map.put(id, project);
+            artifactToLocalProjectMap = Collections.unmodifiableMap(map);
+        }
+    }
+
+    /**
+     * Gets a helper using the index of the projects of the session: the index is built once per
+     * session, from the projects of the reactor and the projects they reference, and reused
+     * until {@link #invalidate(MavenSession)}.
+     *
+     * @param session the maven session
+     * @param project the project
+     * @return the helper
+     */
+    public static MavenProjectHelper forSession(MavenSession session, MavenProject project)
+    {
+        if (session == null)
+            return new MavenProjectHelper(project);
+        Map<String, MavenProject> index;
+        synchronized (SESSION_INDEXES)
+        {
+            index = SESSION_INDEXES.get(session);
+            if (index == null)
+            {
+                Set<MavenProject> roots = new HashSet<>();
+                if (session.getProjects() != null)
+                    roots.addAll(session.getProjects());
+                roots.add(project);
+                index = buildIndex(roots);
+                SESSION_INDEXES.put(session, index);
+            }
+        }
+        return new MavenProjectHelper(index, project);
+    }
+
+    /**
+     * Forget the index of a session, to be called when a pom changed.
+     *
+     * @param session the maven session
+     */
+    public static void invalidate(MavenSession session)
+    {
+        synchronized (SESSION_INDEXES)
+        {
+            SESSION_INDEXES.remove(session);
+        }
     }
 
     /**
@@ -82,18 +145,25 @@ public class MavenProjectHelper
         return path;
     }
 
-    private static Set<MavenProject> resolveProjectDependencies(MavenProject project, Set<MavenProject> visitedProjects)
+    /**
+     * @return the projects reachable from the roots through their project references, each
+     * visited once, by artifact id
+     */
+    private static Map<String, MavenProject> buildIndex(Collection<MavenProject> roots)
     {
-        if (visitedProjects.contains(project))
+        Map<String, MavenProject> index = new HashMap<>();
+        Set<MavenProject> visitedProjects = new HashSet<>();
+        Deque<MavenProject> toVisit = new ArrayDeque<>(roots);
+        while (!toVisit.isEmpty())
         {
-            return Collections.emptySet();
-        }
-        visitedProjects.add(project);
-        Set<MavenProject> availableProjects = new HashSet<>(project.getProjectReferences().values());
-        for (MavenProject ref : project.getProjectReferences().values())
-        {
-            availableProjects.addAll(resolveProjectDependencies(ref, visitedProjects));
+            MavenProject project = toVisit.pop();
+            if (!visitedProjects.add(project))
+            {
+                continue;
+            }
+            index.putIfAbsent(project.getId(), project);
+            toVisit.addAll(project.getProjectReferences().values());
         }
-        return availableProjects;
+        return Collections.unmodifiableMap(index);
     }
 }
@@ -0,0 +1,330 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jetty.util.Scanner;
+
+/**
+ * NativeFileWatcher
+ *
+ * Event driven replacement for a set of polling {@link Scanner}s: every registered
+ * directory tree and file is watched through a single shared {@link WatchService} and
+ * the changes are reported for each subscriber whose files are affected.
+ *
+ * Paths living on file systems that do not emit change events (network mounts,
+ * shared folders of virtual machines) are scanned by a polling {@link Scanner}
+ * instead.
+ *
+ * A watched directory tree that is deleted, like target/classes on a clean, or that does
+ * not exist yet when registered, is waited for by watching its nearest existing parent,
+ * and is watched once created.
+ */
+public class NativeFileWatcher extends AbstractFileWatcher {
+
+    /**
+     * How long the watch thread waits for more events before a batch of changes
+     * is reported, so that a burst of writes produces a single notification.
+     */
+    private static final long SETTLE_MILLIS = 250L;
+
+    /**
+     * File store types on which the watch service does not see changes.
+     */
+    private static final Set<String> NO_EVENTS_FILE_STORES = new HashSet<>(Arrays.asList(
+        "nfs", "nfs4", "cifs", "smbfs", "smb2", "9p", "vboxsf", "prl_fs", "davfs",
+        "fuse.sshfs", "fuse.vmhgfs-fuse"));
+
+    private final int scanIntervalSeconds;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> registeredDirs = new HashSet<>();
+    private final Set<Path> recursiveDirs = new HashSet<>();
+    private final Set<Path> roots = new HashSet<>();
+    private final Map<Path, Set<Path>> missingRoots = new HashMap<>();
+    private final Set<Path> pollingPaths = new LinkedHashSet<>();
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private Scanner pollingScanner;
+
+    public NativeFileWatcher(final int scanIntervalSeconds, final Log log) {
+        super(log);
+        this.scanIntervalSeconds = scanIntervalSeconds;
+    }
+
+    @Override
+    protected void watchDirectory(final Path dir) throws IOException {
+        ensureWatchService();
+        if (!Files.exists(dir)) {
+            final Path parent = nearestExisting(dir);
+            if (parent == null || !supportsEvents(parent)) {
+                pollingPaths.add(dir);
+            } else {
+                roots.add(dir);
+                awaitRoot(dir);
+            }
+        } else if (!supportsEvents(dir) || !tryRegister(dir, true)) {
+            pollingPaths.add(dir);
+        } else {
+            roots.add(dir);
+        }
+    }
+
+    @Override
+    protected void watchFile(final Path file) throws IOException {
+        ensureWatchService();
+        final Path parent = file.getParent();
+        if (parent == null || !Files.isDirectory(parent) || !supportsEvents(parent) || !tryRegister(parent, false)) {
+            pollingPaths.add(file);
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (watchService != null && watchThread == null) {
+            watchThread = new Thread(this::watch, "NativeFileWatcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+        if (!pollingPaths.isEmpty()) {
+            getLog().info("Paths without native change events, polling every " + scanIntervalSeconds + "s: " + pollingPaths);
+            pollingScanner = new Scanner();
+            pollingScanner.setReportExistingFilesOnStartup(false);
+            pollingScanner.setScanInterval(Math.max(1, scanIntervalSeconds));
+            pollingScanner.setScanDepth(Scanner.MAX_SCAN_DEPTH);
+            for (Path path : pollingPaths) {
+                if (Files.isDirectory(path)) {
+                    pollingScanner.addDirectory(path);
+                } else if (Files.exists(path)) {
+                    pollingScanner.addFile(path);
+                } else {
+                    getLog().warn("Not polling " + path + ", it does not exist");
+                }
+            }
+            pollingScanner.addListener((Scanner.BulkListener) changes -> {
+                final List<Path> paths = new ArrayList<>();
+                for (String change : changes) {
+                    paths.add(new File(change).toPath().toAbsolutePath().normalize());
+                }
+                collect(paths);
+                flush();
+            });
+            pollingScanner.start();
+        }
+        getLog().info("Watching " + watchedDirs.size() + " directories for " + getSubscriptionCount() + " webapps");
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (pollingScanner != null) {
+            pollingScanner.stop();
+            pollingScanner = null;
+        }
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        watchedDirs.clear();
+        registeredDirs.clear();
+        recursiveDirs.clear();
+        roots.clear();
+        missingRoots.clear();
+    }
+
+    private void ensureWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+        }
+    }
+
+    private void watch() {
+        final WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                while (key != null) {
+                    process(key);
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            getLog().debug("Watch service closed");
+        }
+    }
+
+    private void process(final WatchKey key) {
+        final List<Path> changed = new ArrayList<>();
+        synchronized (this) {
+            final Path dir = watchedDirs.get(key);
+            if (dir == null) {
+                key.cancel();
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changed.add(dir);
+                    continue;
+                }
+                final Path path = dir.resolve((Path) event.context());
+                changed.add(path);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && isUnderRecursiveDir(dir)
+                    && Files.isDirectory(path)) {
+                    try {
+                        // files may have been written before the new directory got registered
+                        changed.addAll(registerTree(path));
+                    } catch (IOException e) {
+                        getLog().warn("Cannot watch " + path, e);
+                    }
+                }
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && missingRoots.containsKey(dir)) {
+                    for (Path root : missingRoots.remove(dir)) {
+                        changed.addAll(awaitRoot(root));
+                    }
+                }
+            }
+            if (!key.reset()) {
+                final Path gone = watchedDirs.remove(key);
+                registeredDirs.remove(gone);
+                recursiveDirs.remove(gone);
+                if (roots.contains(gone)) {
+                    changed.addAll(awaitRoot(gone));
+                }
+            }
+        }
+        collect(changed);
+    }
+
+    /**
+     * Watch a root again if it exists, or else wait for it to be created by watching its
+     * nearest existing parent. A root created as a file is watched through its parent.
+     *
+     * @return the files found in the root, if it is watched again
+     */
+    private List<Path> awaitRoot(final Path root) {
+        Path parent = nearestExisting(root);
+        while (parent != null) {
+            try {
+                if (parent.equals(root)) {
+                    getLog().debug("Watching " + root + " again");
+                    return registerTree(root);
+                }
+                registerDir(parent);
+            } catch (IOException e) {
+                getLog().warn("Cannot watch " + root + " anymore: " + e);
+                return new ArrayList<>();
+            }
+            if (Files.isRegularFile(root)) {
+                // a file, created before its parent got registered, watched through the parent from now on
+                return new ArrayList<>(Collections.singletonList(root));
+            }
+            // the parents may have changed before the parent got registered
+            final Path now = nearestExisting(root);
+            if (parent.equals(now)) {
+                missingRoots.computeIfAbsent(parent, p -> new HashSet<>()).add(root);
+                return new ArrayList<>();
+            }
+            parent = now;
+        }
+        getLog().warn("Cannot watch " + root + " anymore");
+        return new ArrayList<>();
+    }
+
+    private static Path nearestExisting(final Path path) {
+        for (Path p = path; p != null; p = p.getParent()) {
+            if (Files.isDirectory(p)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryRegister(final Path path, final boolean recursive) {
+        try {
+            if (recursive) {
+                registerTree(path);
+            } else {
+                registerDir(path);
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            getLog().debug("Cannot watch " + path + ", it will be polled: " + e);
+            return false;
+        }
+    }
+
+    private List<Path> registerTree(final Path root) throws IOException {
+        final List<Path> found = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                registerDir(dir);
+                recursiveDirs.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                found.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return found;
+    }
+
+    private void registerDir(final Path dir) throws IOException {
+        if (!registeredDirs.add(dir)) {
+            return;
+        }
+        final WatchKey key = dir.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirs.put(key, dir);
+    }
+
+    private boolean isUnderRecursiveDir(final Path dir) {
+        return recursiveDirs.contains(dir);
+    }
+
+    private boolean supportsEvents(final Path path) {
+        try {
+            final String type = Files.getFileStore(path).type().toLowerCase(Locale.ENGLISH);
+            return !NO_EVENTS_FILE_STORES.contains(type);
+        } catch (IOException | UnsupportedOperationException e) {
+            getLog().debug("Cannot determine file store of " + path + ", it will be polled");
+            return false;
+        }
+    }
+}
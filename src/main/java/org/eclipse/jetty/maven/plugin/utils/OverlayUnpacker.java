@@ -2,12 +2,25 @@ package org.eclipse.jetty.maven.plugin.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
@@ -15,6 +28,7 @@ import org.apache.maven.project.MavenProject;
 import org.eclipse.jetty.maven.plugin.JettyWebAppContext;
 import org.eclipse.jetty.maven.plugin.Overlay;
 import org.eclipse.jetty.maven.plugin.OverlayConfig;
+import org.eclipse.jetty.maven.plugin.SelectiveJarResource;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
@@ -26,6 +40,12 @@ import org.eclipse.jetty.util.resource.ResourceCollection;
  */
 public class OverlayUnpacker {
 
+    /**
+     * Max number of overlay dirs unpacked at the same time, each of them extracting its entries
+     * on the pool of the {@link ZipExtractor}.
+     */
+    private static final int MAX_CONCURRENT_OVERLAYS = 4;
+
     private final MavenProject project;
     private final JettyWebAppContext webApp;
     private final boolean useIntelliJOverlays;
@@ -54,6 +74,47 @@ public class OverlayUnpacker {
 
         List<Resource> resourceBaseCollection = new ArrayList<>();
 
+        // overlays of the same war unpacked to the same dir share their manifest, so that none of
+        // them deletes the entries of the others
+        final Map<File, List<Overlay>> sharing = new LinkedHashMap<>();
+        for (final Overlay o : overlays) {
+            if ((o.getConfig() == null || !o.getConfig().isCurrentProject()) && o.getResource() != null) {
+                sharing.computeIfAbsent(getManifestFile(o), f -> new ArrayList<>()).add(o);
+            }
+        }
+
+        // the overlays unpacked to the same dir, whatever their target path, are unpacked one after
+        // the other on one task, the dirs are unpacked concurrently
+        final Map<String, List<Overlay>> byDir = new LinkedHashMap<>();
+        for (final List<Overlay> group : sharing.values()) {
+            byDir.computeIfAbsent(getName(group.get(0)), n -> new ArrayList<>()).add(group.get(0));
+        }
+
+        // the results are then used in the order of the overlays
+        final Map<Overlay, Future<Map<Overlay, Resource>>> unpacking = new HashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(byDir.size(), MAX_CONCURRENT_OVERLAYS)));
+        try {
+            for (final List<Overlay> dirOverlays : byDir.values()) {
+                final Future<Map<Overlay, Resource>> unpacked = executor.submit(() -> {
+                    final Map<Overlay, Resource> resources = new HashMap<>();
+                    for (final Overlay first : dirOverlays) {
+                        final List<Overlay> group = sharing.get(getManifestFile(first));
+                        for (final Overlay o : group) {
+                            resources.put(o, unpackOverlay(o, group));
+                        }
+                    }
+                    return resources;
+                });
+                for (final Overlay first : dirOverlays) {
+                    for (final Overlay o : sharing.get(getManifestFile(first))) {
+                        unpacking.put(o, unpacked);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
         for (final Overlay o : overlays) {
             //can refer to the current project in list of overlays for ordering purposes
             if (o.getConfig() != null && o.getConfig().isCurrentProject() && webApp.getBaseResource().exists()) {
@@ -76,11 +137,17 @@ public class OverlayUnpacker {
                 continue;
             }
 
-            Resource unpacked = unpackOverlay(o);
+            Resource unpacked = getUnpacked(o, unpacking.get(o));
             if (unpacked != null) {
                 //_unpackedOverlayResources.add(unpacked); //remember the unpacked overlays for later so we can delete the tmp files
                 resourceBaseCollection.add(unpacked); //add in the selectively unpacked overlay in the correct order to the webapps resource base
-                if (StringUtil.isEmpty(webApp.getDescriptor())) {
+                if (StringUtil.isEmpty(webApp.getDescriptor()) && unpacked instanceof ArchiveResource) {
+                    final Resource webXml = unpacked.addPath("WEB-INF/web.xml");
+                    if (webXml.exists() && !webXml.isDirectory()) {
+                        getLog().debug("Set web.xml from overlay: " + webXml);
+                        webApp.setDescriptor(webXml.toString());
+                    }
+                } else if (StringUtil.isEmpty(webApp.getDescriptor())) {
                     final Path path = Paths.get(unpacked.getName(), "WEB-INF", "web.xml");
                     final File f = path.toFile();
                     if (f.exists() && f.isFile()) {
@@ -101,8 +168,35 @@ public class OverlayUnpacker {
         webApp.setBaseResource(new ResourceCollection(resourceBaseCollection.toArray(new Resource[] {})));
     }
 
+    private static Resource getUnpacked(final Overlay overlay, final Future<Map<Overlay, Resource>> unpacked) throws Exception {
+        if (unpacked == null) {
+            return null;
+        }
+        try {
+            return unpacked.get().get(overlay);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     public Resource unpackOverlay(final Overlay overlay)
         throws IOException
+    {
+        return unpackOverlay(overlay, Collections.singletonList(overlay));
+    }
+
+    /**
+     * @param overlay the overlay to unpack
+     * @param sharing the overlays unpacked to the same dir, the overlay included, whose
+     * selections are unpacked together
+     * @return the unpacked overlay, null if there is nothing to unpack
+     * @throws IOException if the overlay cannot be unpacked
+     */
+    private Resource unpackOverlay(final Overlay overlay, final List<Overlay> sharing)
+        throws IOException
     {
         if (overlay.getResource() == null) {
             return null; //nothing to unpack
@@ -114,26 +208,41 @@ public class OverlayUnpacker {
             return intelliJOverlay.get();
         }
 
+        final File archive = getArchiveFile(overlay.getResource());
+        if (archive != null && webApp.isArchiveOverlays()) {
+            final Resource served = openArchive(overlay, archive);
+            if (served != null) {
+                return served;
+            }
+        }
+
         //Get the name of the overlayed war and unpack it to a dir of the
         //same name in the temporary directory
-        String name = overlay.getResource().getName();
-        if (name.endsWith("!/"))
-            name = name.substring(0, name.length() - 2);
-        int i = name.lastIndexOf('/');
-        if (i > 0)
-            name = name.substring(i + 1);
-        name = StringUtil.replace(name, '.', '_');
-        //name = name+(++COUNTER); //add some digits to ensure uniqueness
-        File overlaysDir = new File(project.getBuild().getDirectory(), "jetty_overlays");
-        File dir = new File(overlaysDir, name);
+        File dir = new File(getOverlaysDir(), getName(overlay));
 
         //if specified targetPath, unpack to that subdir instead
         File unpackDir = dir;
         if (overlay.getConfig() != null && overlay.getConfig().getTargetPath() != null)
             unpackDir = new File(dir, overlay.getConfig().getTargetPath());
 
+        if (archive != null) {
+            //only write the entries that changed since the last unpack, of all the selections
+            //unpacked to that dir
+            Predicate<String> selector = name -> false;
+            final TreeSet<String> selectionKeys = new TreeSet<>();
+            for (final Overlay o : sharing) {
+                selector = selector.or(getSelector(o.getResource()));
+                selectionKeys.add(getSelectionKey(o.getResource()));
+            }
+            unpackDir.mkdirs();
+            new IncrementalUnpacker(getLog()).unpack(archive,
+                unpackDir,
+                getManifestFile(overlay),
+                selector,
+                String.join(" | ", selectionKeys));
+        }
         //only unpack if the overlay is newer
-        if (!unpackDir.exists() || (overlay.getResource().lastModified() > unpackDir.lastModified()))
+        else if (!unpackDir.exists() || (overlay.getResource().lastModified() > unpackDir.lastModified()))
         {
             boolean made = unpackDir.mkdirs();
             overlay.getResource().copyTo(unpackDir);
@@ -143,6 +252,95 @@ public class OverlayUnpacker {
         return Resource.newResource(dir.getCanonicalPath());
     }
 
+    private File getOverlaysDir() {
+        return new File(project.getBuild().getDirectory(), "jetty_overlays");
+    }
+
+    /**
+     * @param overlay the overlay
+     * @return the name of the dir the overlay is unpacked to, after its war
+     */
+    private static String getName(final Overlay overlay) {
+        String name = overlay.getResource().getName();
+        if (name.endsWith("!/"))
+            name = name.substring(0, name.length() - 2);
+        int i = name.lastIndexOf('/');
+        if (i > 0)
+            name = name.substring(i + 1);
+        return StringUtil.replace(name, '.', '_');
+    }
+
+    /**
+     * @param overlay the overlay
+     * @return the manifest of the entries unpacked to the dir of the overlay, one per war and
+     * target path
+     */
+    private File getManifestFile(final Overlay overlay) {
+        String manifestName = getName(overlay);
+        if (overlay.getConfig() != null && overlay.getConfig().getTargetPath() != null) {
+            try {
+                // encoded so that the target paths a/b and a_b do not share a manifest
+                manifestName += "_" + URLEncoder.encode(overlay.getConfig().getTargetPath(), StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return new File(getOverlaysDir(), manifestName + ".manifest");
+    }
+
+    /**
+     * @param overlay the overlay
+     * @param archive the war file of the overlay
+     * @return the overlay served from its war file, null if it has to be unpacked because
+     * it contributes classes or jars, which the webapp class loader can only use from files
+     */
+    private Resource openArchive(final Overlay overlay, final File archive) throws IOException {
+        final long start = System.nanoTime();
+        final String targetPath = overlay.getConfig() != null ? overlay.getConfig().getTargetPath() : null;
+        final ArchiveResource resource = ArchiveResource.open(archive,
+            getSelector(overlay.getResource()),
+            getSelectionKey(overlay.getResource()),
+            targetPath);
+        if (resource.contains("WEB-INF/classes/") || resource.contains("WEB-INF/lib/")) {
+            getLog().info("Overlay " + archive.getName() + " contains WEB-INF/classes or WEB-INF/lib, unpacking it");
+            return null;
+        }
+        getLog().info("Serving overlay " + archive.getName() + " from the archive (indexed in "
+            + (System.nanoTime() - start) / 1_000_000 + "ms)");
+        return resource;
+    }
+
+    /**
+     * @param resource the overlay resource
+     * @return the war file of a jar:file:...!/ resource, null for any other resource
+     */
+    private static File getArchiveFile(final Resource resource) {
+        final String url = resource.getURI().toString();
+        if (!url.startsWith("jar:file:") || !url.endsWith("!/")) {
+            return null;
+        }
+        try {
+            final File file = new File(URI.create(url.substring(4, url.length() - 2)));
+            return file.isFile() ? file : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Predicate<String> getSelector(final Resource resource) {
+        if (resource instanceof SelectiveJarResource) {
+            return ((SelectiveJarResource) resource)::isSelected;
+        }
+        return name -> true;
+    }
+
+    private static String getSelectionKey(final Resource resource) {
+        if (resource instanceof SelectiveJarResource) {
+            return ((SelectiveJarResource) resource).getSelectionKey();
+        }
+        return "all";
+    }
+
     private Optional<Resource> checkIntelliJOverlayFolder(final Overlay overlay) {
         final OverlayConfig config = overlay.getConfig();
         if (config == null || !useIntelliJOverlays) {
@@ -0,0 +1,135 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jetty.server.handler.ContextHandler;
+
+/**
+ * ParallelContextStarter
+ *
+ * Starts a set of contexts on a bounded pool of threads. The contexts listed as "start first"
+ * are started one after another, in the given order, before the others; the remaining ones
+ * are started concurrently. A summary of the start time of each context is logged at the end.
+ */
+public class ParallelContextStarter {
+
+    private final int parallelism;
+    private final List<String> startFirst;
+    private final Log log;
+
+    /**
+     * @param parallelism the max number of contexts started at the same time
+     * @param startFirst the context paths of the contexts to start before the others, may be null
+     * @param log the log
+     */
+    public ParallelContextStarter(final int parallelism, final String[] startFirst, final Log log) {
+        this.parallelism = Math.max(1, parallelism);
+        this.startFirst = startFirst != null ? Arrays.asList(startFirst) : Collections.emptyList();
+        this.log = log;
+    }
+
+    /**
+     * Start the contexts, a failure to start a context is logged and does not prevent
+     * the other contexts from starting.
+     *
+     * @param contexts the contexts to start
+     * @return the contexts that failed to start
+     * @throws InterruptedException if interrupted while waiting for the contexts to start
+     */
+    public List<ContextHandler> start(final List<? extends ContextHandler> contexts) throws InterruptedException {
+        final long begin = System.nanoTime();
+        final Map<ContextHandler, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+        final List<ContextHandler> failed = Collections.synchronizedList(new ArrayList<>());
+
+        final List<ContextHandler> first = new ArrayList<>();
+        for (String contextPath : startFirst) {
+            for (ContextHandler context : contexts) {
+                if (contextPath.equals(context.getContextPath()) && !first.contains(context)) {
+                    first.add(context);
+                }
+            }
+        }
+        for (ContextHandler context : first) {
+            start(context, timings, failed);
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread t = new Thread(r, "jetty-context-start-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (ContextHandler context : contexts) {
+                if (!first.contains(context)) {
+                    futures.add(executor.submit(() -> start(context, timings, failed)));
+                }
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Error starting context", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        logSummary(timings, failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return failed;
+    }
+
+    private void start(final ContextHandler context,
+                       final Map<ContextHandler, Long> timings,
+                       final List<ContextHandler> failed) {
+        final long begin = System.nanoTime();
+        try {
+            context.start();
+            if (!context.isAvailable()) {
+                failed.add(context);
+            }
+        } catch (Exception e) {
+            log.error("Error starting context " + context.getContextPath(), e);
+            failed.add(context);
+        } finally {
+            timings.put(context, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        }
+    }
+
+    private void logSummary(final Map<ContextHandler, Long> timings,
+                            final List<ContextHandler> failed,
+                            final long elapsed) {
+        final List<Map.Entry<ContextHandler, Long>> entries;
+        synchronized (timings) {
+            entries = new ArrayList<>(timings.entrySet());
+        }
+        entries.sort(Map.Entry.<ContextHandler, Long>comparingByValue(Comparator.reverseOrder()));
+
+        long total = 0;
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Started ").append(entries.size()).append(" contexts in ").append(elapsed)
+            .append("ms using ").append(parallelism).append(" threads:");
+        for (Map.Entry<ContextHandler, Long> entry : entries) {
+            total += entry.getValue();
+            sb.append(String.format("%n  %8dms  %s%s", entry.getValue(), entry.getKey().getContextPath(),
+                failed.contains(entry.getKey()) ? " (FAILED)" : ""));
+        }
+        sb.append(String.format("%n  %8dms  total of the context start times", total));
+        log.info(sb.toString());
+    }
+}
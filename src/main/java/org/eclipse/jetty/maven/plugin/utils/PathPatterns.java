@@ -0,0 +1,305 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * PathPatterns
+ *
+ * Include/exclude patterns compiled once and matched many times.
+ *
+ * Ant-style patterns (as understood by plexus SelectorUtils.matchPath, including the
+ * %regex[...] and %ant[...] forms) are split in segments when compiled, and indexed by their
+ * first literal segment so that a path is only compared with the patterns that can match it.
+ *
+ * Glob patterns are turned into {@link PathMatcher}s by {@link #glob(FileSystem, String)},
+ * which caches them by pattern.
+ */
+public class PathPatterns {
+
+    private static final String GLOB_PREFIX = "glob:";
+    private static final String REGEX_PREFIX = "%regex[";
+    private static final String ANT_PREFIX = "%ant[";
+    private static final String DOUBLE_STAR = "**";
+
+    private static final Map<FileSystem, Map<String, PathMatcher>> GLOBS = new ConcurrentHashMap<>();
+
+    private final Matcher includes;
+    private final Matcher excludes;
+
+    /**
+     * @param includes the include patterns, if empty nothing is included
+     * @param excludes the exclude patterns
+     * @param caseSensitive whether the patterns are case sensitive
+     */
+    public PathPatterns(final List<String> includes, final List<String> excludes, final boolean caseSensitive) {
+        this.includes = new Matcher(includes, caseSensitive);
+        this.excludes = new Matcher(excludes, caseSensitive);
+    }
+
+    /**
+     * @param path a '/' separated path
+     * @return true if the path is included and not excluded
+     */
+    public boolean matches(final String path) {
+        final String[] segments = tokenize(path);
+        final boolean absolute = path.startsWith("/");
+        return includes.matches(path, segments, absolute) && !excludes.matches(path, segments, absolute);
+    }
+
+    public boolean isIncluded(final String path) {
+        return includes.matches(path, tokenize(path), path.startsWith("/"));
+    }
+
+    public boolean isExcluded(final String path) {
+        return excludes.matches(path, tokenize(path), path.startsWith("/"));
+    }
+
+    /**
+     * @param fileSystem the file system of the paths to match
+     * @param pattern a glob pattern, with or without the "glob:" prefix
+     * @return the cached matcher of the pattern
+     */
+    public static PathMatcher glob(final FileSystem fileSystem, final String pattern) {
+        final String syntaxAndPattern = pattern.startsWith(GLOB_PREFIX) ? pattern : GLOB_PREFIX + pattern;
+        return GLOBS.computeIfAbsent(fileSystem, fs -> new ConcurrentHashMap<>())
+            .computeIfAbsent(syntaxAndPattern, fileSystem::getPathMatcher);
+    }
+
+    /**
+     * @param pattern a glob pattern, with or without the "glob:" prefix
+     * @return the cached matcher of the pattern for the default file system
+     */
+    public static PathMatcher glob(final String pattern) {
+        return glob(FileSystems.getDefault(), pattern);
+    }
+
+    private static String[] tokenize(final String path) {
+        final List<String> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * A set of patterns indexed by their first segment.
+     */
+    private static class Matcher {
+        private final boolean caseSensitive;
+        private final Map<String, List<AntPattern>> byFirstSegment = new HashMap<>();
+        private final List<AntPattern> others = new ArrayList<>();
+        private final List<Pattern> regexes = new ArrayList<>();
+
+        Matcher(final List<String> patterns, final boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+            for (String pattern : patterns != null ? patterns : Collections.<String>emptyList()) {
+                if (pattern.length() > REGEX_PREFIX.length() + 1 && pattern.startsWith(REGEX_PREFIX) && pattern.endsWith("]")) {
+                    regexes.add(Pattern.compile(pattern.substring(REGEX_PREFIX.length(), pattern.length() - 1)));
+                    continue;
+                }
+                if (pattern.length() > ANT_PREFIX.length() + 1 && pattern.startsWith(ANT_PREFIX) && pattern.endsWith("]")) {
+                    pattern = pattern.substring(ANT_PREFIX.length(), pattern.length() - 1);
+                }
+                final AntPattern compiled = new AntPattern(pattern, caseSensitive);
+                final String first = compiled.getLiteralFirstSegment();
+                if (first != null) {
+                    byFirstSegment.computeIfAbsent(key(first), k -> new ArrayList<>()).add(compiled);
+                } else {
+                    others.add(compiled);
+                }
+            }
+        }
+
+        boolean matches(final String path, final String[] segments, final boolean absolute) {
+            for (Pattern regex : regexes) {
+                if (regex.matcher(path).matches()) {
+                    return true;
+                }
+            }
+            if (segments.length > 0) {
+                final List<AntPattern> candidates = byFirstSegment.get(key(segments[0]));
+                if (candidates != null) {
+                    for (AntPattern pattern : candidates) {
+                        if (pattern.matches(segments, absolute)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            for (AntPattern pattern : others) {
+                if (pattern.matches(segments, absolute)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String key(final String segment) {
+            return caseSensitive ? segment : segment.toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * An Ant-style pattern split in segments, matched like plexus SelectorUtils.matchAntPathPattern.
+     */
+    private static class AntPattern {
+        private final String[] segments;
+        private final boolean[] literal;
+        private final boolean absolute;
+        private final boolean caseSensitive;
+
+        AntPattern(final String pattern, final boolean caseSensitive) {
+            this.segments = tokenize(pattern);
+            this.literal = new boolean[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                literal[i] = segments[i].indexOf('*') < 0 && segments[i].indexOf('?') < 0;
+            }
+            this.absolute = pattern.startsWith("/");
+            this.caseSensitive = caseSensitive;
+        }
+
+        String getLiteralFirstSegment() {
+            return segments.length > 0 && literal[0] ? segments[0] : null;
+        }
+
+        boolean matches(final String[] str, final boolean strAbsolute) {
+            if (absolute != strAbsolute) {
+                return false;
+            }
+            int patStart = 0;
+            int patEnd = segments.length - 1;
+            int strStart = 0;
+            int strEnd = str.length - 1;
+
+            // up to the first **
+            while (patStart <= patEnd && strStart <= strEnd) {
+                if (isDoubleStar(patStart)) {
+                    break;
+                }
+                if (!matchSegment(patStart, str[strStart])) {
+                    return false;
+                }
+                patStart++;
+                strStart++;
+            }
+            if (strStart > strEnd) {
+                return onlyDoubleStars(patStart, patEnd);
+            }
+            if (patStart > patEnd) {
+                return false;
+            }
+
+            // up to the last **
+            while (patStart <= patEnd && strStart <= strEnd) {
+                if (isDoubleStar(patEnd)) {
+                    break;
+                }
+                if (!matchSegment(patEnd, str[strEnd])) {
+                    return false;
+                }
+                patEnd--;
+                strEnd--;
+            }
+            if (strStart > strEnd) {
+                return onlyDoubleStars(patStart, patEnd);
+            }
+
+            // the segments between two ** must appear in order
+            while (patStart != patEnd && strStart <= strEnd) {
+                int patTmp = -1;
+                for (int i = patStart + 1; i <= patEnd; i++) {
+                    if (isDoubleStar(i)) {
+                        patTmp = i;
+                        break;
+                    }
+                }
+                if (patTmp == patStart + 1) {
+                    patStart++;
+                    continue;
+                }
+                final int patLength = patTmp - patStart - 1;
+                final int strLength = strEnd - strStart + 1;
+                int found = -1;
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        if (!matchSegment(patStart + j + 1, str[strStart + i + j])) {
+                            continue strLoop;
+                        }
+                    }
+                    found = strStart + i;
+                    break;
+                }
+                if (found == -1) {
+                    return false;
+                }
+                patStart = patTmp;
+                strStart = found + patLength;
+            }
+            return onlyDoubleStars(patStart, patEnd);
+        }
+
+        private boolean isDoubleStar(final int i) {
+            return DOUBLE_STAR.equals(segments[i]);
+        }
+
+        private boolean onlyDoubleStars(final int from, final int to) {
+            for (int i = from; i <= to; i++) {
+                if (!isDoubleStar(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchSegment(final int i, final String str) {
+            if (literal[i]) {
+                return caseSensitive ? segments[i].equals(str) : segments[i].equalsIgnoreCase(str);
+            }
+            return wildcardMatch(segments[i], 0, str, 0);
+        }
+
+        private boolean wildcardMatch(final String pat, int p, final String str, int s) {
+            int starP = -1;
+            int starS = -1;
+            while (s < str.length()) {
+                if (p < pat.length() && (pat.charAt(p) == '?' || same(pat.charAt(p), str.charAt(s)))) {
+                    p++;
+                    s++;
+                } else if (p < pat.length() && pat.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pat.length() && pat.charAt(p) == '*') {
+                p++;
+            }
+            return p == pat.length();
+        }
+
+        private boolean same(final char a, final char b) {
+            return a == b || (!caseSensitive && Character.toUpperCase(a) == Character.toUpperCase(b));
+        }
+    }
+}
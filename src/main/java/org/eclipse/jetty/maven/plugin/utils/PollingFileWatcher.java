@@ -0,0 +1,186 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jetty.util.Scanner;
+
+/**
+ * PollingFileWatcher
+ *
+ * Replaces one polling {@link Scanner} per webapp with a single {@link Scanner}
+ * thread: the union of the registered paths is walked once per scan interval, paths
+ * nested in another registered directory are not scanned twice, and each change
+ * is reported to every subscriber that registered it.
+ *
+ * A registered path that does not exist yet, like the target/classes of a module not
+ * compiled yet, is checked after each scan, and scanned once it exists.
+ */
+public class PollingFileWatcher extends AbstractFileWatcher {
+
+    private final int scanIntervalSeconds;
+
+    private final Set<Path> dirs = new LinkedHashSet<>();
+    private final Set<Path> files = new LinkedHashSet<>();
+
+    private final Set<Path> missing = new LinkedHashSet<>();
+
+    private Scanner scanner;
+    private boolean running;
+
+    public PollingFileWatcher(final int scanIntervalSeconds, final Log log) {
+        super(log);
+        this.scanIntervalSeconds = scanIntervalSeconds;
+    }
+
+    @Override
+    protected void watchDirectory(final Path dir) {
+        dirs.add(dir);
+    }
+
+    @Override
+    protected void watchFile(final Path file) {
+        files.add(file);
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (scanner != null) {
+            return;
+        }
+        running = true;
+        final List<Path> roots = getScanRoots();
+        missing.clear();
+        scanner = new Scanner();
+        scanner.setReportExistingFilesOnStartup(false);
+        scanner.setScanInterval(scanIntervalSeconds);
+        scanner.setScanDepth(Scanner.MAX_SCAN_DEPTH);
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                scanner.addDirectory(root);
+            } else if (Files.exists(root)) {
+                scanner.addFile(root);
+            } else {
+                missing.add(root);
+            }
+        }
+        scanner.addListener((Scanner.BulkListener) changes -> {
+            final List<Path> paths = new ArrayList<>(changes.size());
+            for (String change : changes) {
+                paths.add(new File(change).toPath().toAbsolutePath().normalize());
+            }
+            collect(paths);
+            flush();
+        });
+        if (!missing.isEmpty()) {
+            getLog().info("Waiting for " + missing.size() + " paths to be created: " + missing);
+            final Scanner current = scanner;
+            final List<Path> waited = new ArrayList<>(missing);
+            scanner.addListener(new Scanner.ScanCycleListener() {
+                @Override
+                public void scanStarted(final int cycle) {
+                }
+
+                @Override
+                public void scanEnded(final int cycle) {
+                    if (waited.stream().anyMatch(Files::exists)) {
+                        // not on the scan thread, which holds the lock of the scanner to stop
+                        final Thread thread = new Thread(() -> rescan(current), "PollingFileWatcher-rescan");
+                        thread.setDaemon(true);
+                        thread.start();
+                    }
+                }
+            });
+        }
+        scanner.start();
+        getLog().info("Scanning " + (roots.size() - missing.size()) + " paths every " + scanIntervalSeconds + "s for "
+            + getSubscriptionCount() + " webapps");
+    }
+
+    /**
+     * Scan the paths that were missing and have been created, reporting their files as changed.
+     *
+     * @param previous the scanner that found the paths
+     */
+    private void rescan(final Scanner previous) {
+        final List<Path> created = new ArrayList<>();
+        synchronized (this) {
+            if (scanner != previous) {
+                return;
+            }
+            scanner = null;
+            for (Path root : missing) {
+                if (Files.exists(root)) {
+                    created.add(root);
+                }
+            }
+        }
+        try {
+            // without the lock, which a running scan of the previous scanner may wait for
+            previous.stop();
+            synchronized (this) {
+                if (!running || scanner != null) {
+                    return;
+                }
+                doStart();
+            }
+        } catch (Exception e) {
+            getLog().warn("Cannot scan " + created, e);
+            return;
+        }
+        final List<Path> changed = new ArrayList<>();
+        for (Path root : created) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.forEach(changed::add);
+            } catch (IOException e) {
+                getLog().warn("Cannot list " + root, e);
+            }
+        }
+        collect(changed);
+        flush();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        running = false;
+        if (scanner != null) {
+            scanner.stop();
+            scanner = null;
+        }
+    }
+
+    /**
+     * @return the registered paths, without the ones already covered by a registered directory
+     */
+    private List<Path> getScanRoots() {
+        final List<Path> roots = new ArrayList<>();
+        for (Path dir : dirs) {
+            if (!isCovered(dir)) {
+                roots.add(dir);
+            }
+        }
+        for (Path file : files) {
+            if (!isCovered(file)) {
+                roots.add(file);
+            }
+        }
+        return roots;
+    }
+
+    private boolean isCovered(final Path path) {
+        for (Path p = path.getParent(); p != null; p = p.getParent()) {
+            if (dirs.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,365 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.util.component.Container;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+/**
+ * ReadinessChannel
+ *
+ * The link through which a forked jetty process tells the plugin how its startup goes, so that
+ * the plugin waits for the events of the startup instead of polling for a token file.
+ *
+ * The plugin listens on a loopback port and gives the port and a random key to the forked
+ * process, which connects with a {@link Reporter} and sends the key, then one line per event:
+ * a context started with its startup time, a context failed, and finally the server started
+ * or failed. The plugin blocks on the connection until the final event, the exit of the
+ * process or the timeout.
+ */
+public class ReadinessChannel implements Closeable {
+
+    private static final Logger LOG = Log.getLogger(ReadinessChannel.class);
+
+    private static final String CONTEXT_STARTED = "CONTEXT-STARTED";
+    private static final String CONTEXT_FAILED = "CONTEXT-FAILED";
+    private static final String STARTED = "STARTED";
+    private static final String FAILED = "FAILED";
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+
+    private final ServerSocket serverSocket;
+    private final String key;
+    private volatile Socket socket;
+
+    /**
+     * How the startup of a forked process ended.
+     */
+    public enum Status {
+        STARTED, FAILED, EXITED, TIMED_OUT
+    }
+
+    /**
+     * The outcome of the startup of a forked process.
+     */
+    public static class Result {
+        private final Status status;
+        private final String message;
+
+        Result(final Status status, final String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the startup time, the cause of the failure or the exit code
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Listen on a free loopback port.
+     *
+     * @throws IOException if the port cannot be opened
+     */
+    public ReadinessChannel() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+        final byte[] random = new byte[24];
+        new SecureRandom().nextBytes(random);
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : random) {
+            builder.append(String.format("%02x", b));
+        }
+        key = builder.toString();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Block until the forked process has started, failed to start or exited.
+     *
+     * @param process the forked process
+     * @param timeoutMs the longest time to wait
+     * @param progress told about each context started or failed
+     * @return how the startup ended
+     * @throws IOException if the events cannot be read
+     */
+    public Result await(final Process process, final long timeoutMs, final Consumer<String> progress) throws IOException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // unblocks the wait as soon as the process dies
+        final Thread watcher = new Thread(() -> {
+            try {
+                process.waitFor();
+                close();
+            } catch (InterruptedException e) {
+                // the startup ended
+            }
+        }, "ReadinessWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        try {
+            while (true) {
+                serverSocket.setSoTimeout(remaining(deadline));
+                try (Socket accepted = serverSocket.accept()) {
+                    socket = accepted;
+                    accepted.setSoTimeout(CONNECT_TIMEOUT_MS);
+                    final BufferedReader in = new BufferedReader(new InputStreamReader(accepted.getInputStream(), StandardCharsets.UTF_8));
+                    final String givenKey = in.readLine();
+                    if (givenKey == null || !MessageDigest.isEqual(key.getBytes(StandardCharsets.UTF_8), givenKey.getBytes(StandardCharsets.UTF_8))) {
+                        LOG.warn("Ignoring a connection with a wrong key from {}", accepted.getRemoteSocketAddress());
+                        continue;
+                    }
+
+                    String line;
+                    while (true) {
+                        accepted.setSoTimeout(remaining(deadline));
+                        if ((line = in.readLine()) == null) {
+                            // the process closed the connection without a verdict, it is likely exiting
+                            return exited(process, deadline);
+                        }
+                        final String[] event = line.split(" ", 3);
+                        if (CONTEXT_STARTED.equals(event[0]) && event.length == 3) {
+                            progress.accept("Started " + event[2] + " in " + event[1] + "ms");
+                        } else if (CONTEXT_FAILED.equals(event[0]) && event.length == 3) {
+                            progress.accept("Failed to start " + event[1] + ": " + event[2]);
+                        } else if (STARTED.equals(event[0])) {
+                            return new Result(Status.STARTED, event.length > 1 ? event[1] + "ms" : "");
+                        } else if (FAILED.equals(event[0])) {
+                            return new Result(Status.FAILED, line.substring(FAILED.length()).trim());
+                        } else {
+                            LOG.debug("Ignoring the unknown event {}", line);
+                        }
+                    }
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            return new Result(Status.TIMED_OUT, timeoutMs + "ms");
+        } catch (SocketException e) {
+            // closed by the watcher
+            if (!process.isAlive()) {
+                return new Result(Status.EXITED, "exit code " + process.exitValue());
+            }
+            throw e;
+        } finally {
+            watcher.interrupt();
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+            final Socket s = socket;
+            if (s != null) {
+                s.close();
+            }
+        } catch (IOException e) {
+            LOG.ignore(e);
+        }
+    }
+
+    private static Result exited(final Process process, final long deadline) {
+        try {
+            if (process.waitFor(remaining(deadline), TimeUnit.MILLISECONDS)) {
+                return new Result(Status.EXITED, "exit code " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SocketTimeoutException e) {
+            // past the deadline
+        }
+        return new Result(Status.TIMED_OUT, "no event");
+    }
+
+    private static int remaining(final long deadline) throws SocketTimeoutException {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new SocketTimeoutException();
+        }
+        return (int)Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The side of the forked process: sends the startup time of each context as it starts,
+     * and the failure of the server. The final verdict is sent by the process, with
+     * {@link #started()} once it is ready or {@link #failed(Throwable)}.
+     */
+    public static class Reporter implements LifeCycle.Listener, Container.InheritedListener {
+        private final int port;
+        private final String key;
+        private final Map<LifeCycle, Long> starts = new ConcurrentHashMap<>();
+        private final long created = System.nanoTime();
+        private Server server;
+        private Socket socket;
+        private Writer out;
+
+        /**
+         * @param port the port the plugin listens on
+         * @param key the key given by the plugin
+         */
+        public Reporter(final int port, final String key) {
+            this.port = port;
+            this.key = key;
+        }
+
+        /**
+         * Connect to the plugin and follow the contexts of a server, including the ones
+         * deployed while it starts.
+         *
+         * @param server the server
+         */
+        public synchronized void watch(final Server server) {
+            try {
+                socket = new Socket();
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+                out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                send(key);
+            } catch (IOException e) {
+                LOG.warn("Cannot report the startup to the plugin on port {}: {}", port, e.toString());
+                closeQuietly();
+                return;
+            }
+            this.server = server;
+            server.addLifeCycleListener(this);
+            server.addBean(this);
+        }
+
+        /**
+         * Tell the plugin that the process is ready.
+         */
+        public void started() {
+            end(STARTED + " " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created));
+        }
+
+        /**
+         * Tell the plugin that the process failed to start.
+         *
+         * @param cause the failure
+         */
+        public void failed(final Throwable cause) {
+            end(FAILED + " " + describe(cause));
+        }
+
+        @Override
+        public void beanAdded(final Container parent, final Object child) {
+            if (child instanceof ContextHandler) {
+                ((ContextHandler)child).addLifeCycleListener(this);
+            }
+        }
+
+        @Override
+        public void beanRemoved(final Container parent, final Object child) {
+            if (child instanceof ContextHandler) {
+                ((ContextHandler)child).removeLifeCycleListener(this);
+            }
+        }
+
+        @Override
+        public void lifeCycleStarting(final LifeCycle event) {
+            starts.put(event, System.nanoTime());
+        }
+
+        @Override
+        public void lifeCycleStarted(final LifeCycle event) {
+            final Long start = starts.remove(event);
+            if (!(event instanceof ContextHandler) || start == null) {
+                return;
+            }
+            final ContextHandler context = (ContextHandler)event;
+            if (context.isAvailable()) {
+                send(CONTEXT_STARTED + " " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " " + context.getContextPath());
+            } else {
+                final Throwable cause = context instanceof WebAppContext ? ((WebAppContext)context).getUnavailableException() : null;
+                send(CONTEXT_FAILED + " " + context.getContextPath() + " " + (cause != null ? describe(cause) : "unavailable"));
+            }
+        }
+
+        @Override
+        public void lifeCycleFailure(final LifeCycle event, final Throwable cause) {
+            starts.remove(event);
+            if (event instanceof ContextHandler) {
+                send(CONTEXT_FAILED + " " + ((ContextHandler)event).getContextPath() + " " + describe(cause));
+            } else if (event instanceof Server) {
+                failed(cause);
+            }
+        }
+
+        private synchronized void end(final String event) {
+            if (out == null) {
+                return;
+            }
+            send(event);
+            closeQuietly();
+            server.removeBean(this);
+            server.removeLifeCycleListener(this);
+        }
+
+        private synchronized void send(final String event) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(event + "\n");
+                out.flush();
+            } catch (IOException e) {
+                LOG.debug("Cannot report {} to the plugin", event, e);
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            out = null;
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                LOG.ignore(e);
+            }
+        }
+
+        private static String describe(final Throwable cause) {
+            // one line per event
+            return String.valueOf(cause).replace('\r', ' ').replace('\n', ' ');
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * WarmFork
+ *
+ * The link between run-forked and a forked jetty process kept alive between the builds, so
+ * that the webapp is redeployed into the running JVM instead of starting a new one.
+ *
+ * The forked process listens on a loopback port and writes the port, a random key and the id
+ * of its command line to a state file, kept in the home of the user so that it outlives a clean
+ * of the project. The plugin reads the state file and sends one command
+ * per connection, as lines: the key, the command and its argument. The process answers with a
+ * single line, "OK" or "ERROR" followed by a message.
+ */
+public class WarmFork {
+
+    private static final Logger LOG = Log.getLogger(WarmFork.class);
+
+    public static final String STATE_FILE_NAME = "jetty-warm-fork.properties";
+    public static final String STATE_DIR = ".jetty-maven-plugin/warm-forks";
+
+    /**
+     * Redeploy the webapps from the configuration file given as argument.
+     */
+    public static final String REDEPLOY = "REDEPLOY";
+    /**
+     * Stop the server and exit.
+     */
+    public static final String STOP = "STOP";
+
+    private static final String OK = "OK";
+    private static final String ERROR = "ERROR";
+
+    private static final String PORT = "port";
+    private static final String KEY = "key";
+    private static final String ID = "id";
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int REPLY_TIMEOUT_MS = 300_000;
+
+    /**
+     * What the forked process does on a command.
+     */
+    public interface Target {
+        /**
+         * @param config the configuration file describing the webapps
+         * @throws Exception if the webapps cannot be redeployed
+         */
+        void redeploy(File config) throws Exception;
+
+        /**
+         * @throws Exception if the server cannot be stopped
+         */
+        void stop() throws Exception;
+    }
+
+    /**
+     * The state file of a forked process.
+     */
+    public static class State {
+        private final int port;
+        private final String key;
+        private final String id;
+
+        State(final int port, final String key, final String id) {
+            this.port = port;
+            this.key = key;
+            this.id = id;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+
+    private WarmFork() {
+    }
+
+    /**
+     * @param project the base directory of the project running the forked process
+     * @return the state file of the process of the project, outside of the project so that a
+     * clean does not lose the process
+     * @throws IOException if the path of the project cannot be resolved
+     */
+    public static File getStateFile(final File project) throws IOException {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(project.getCanonicalPath().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            name.append('-').append(STATE_FILE_NAME);
+            return new File(new File(System.getProperty("user.home"), STATE_DIR), name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param stateFile the state file written by the forked process
+     * @return the state, null if there is no state file or it cannot be read
+     */
+    public static State readState(final File stateFile) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        final Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+            props.load(in);
+            return new State(Integer.parseInt(props.getProperty(PORT)), props.getProperty(KEY), props.getProperty(ID));
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Cannot read " + stateFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Send a command to a forked process.
+     *
+     * @param state the state of the process
+     * @param command the command
+     * @param argument the argument of the command, may be null
+     * @return true if the command succeeded
+     * @throws ConnectException if no process listens on the port of the state
+     * @throws IOException if the command failed or got no reply in time
+     */
+    public static boolean send(final State state, final String command, final String argument) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), state.port), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(REPLY_TIMEOUT_MS);
+            final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write(state.key + "\n" + command + "\n" + (argument != null ? argument : "") + "\n");
+            out.flush();
+            final String reply;
+            try {
+                reply = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+            } catch (SocketTimeoutException e) {
+                // the process is there but busy or hung, not missing
+                throw new IOException("No reply to " + command + " within " + REPLY_TIMEOUT_MS / 1000 + "s", e);
+            }
+            if (OK.equals(reply)) {
+                return true;
+            }
+            throw new IOException(reply == null ? "No reply to " + command : reply);
+        }
+    }
+
+    /**
+     * Listen for commands on a loopback port, on a dedicated thread.
+     *
+     * @param port the port, 0 for any free port
+     * @param stateFile the state file to write for the plugin
+     * @param id the id of the command line of the process
+     * @param target what to do on a command
+     * @throws IOException if the port cannot be opened or the state file cannot be written
+     */
+    public static void listen(final int port, final File stateFile, final String id, final Target target) throws IOException {
+        final ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1);
+
+        final byte[] random = new byte[24];
+        new SecureRandom().nextBytes(random);
+        final StringBuilder key = new StringBuilder();
+        for (byte b : random) {
+            key.append(String.format("%02x", b));
+        }
+        writeState(stateFile, serverSocket.getLocalPort(), key.toString(), id);
+
+        // not a daemon: the process only exits on a stop, whatever stopped the server
+        final Thread thread = new Thread(() -> accept(serverSocket, stateFile, key.toString(), target), "WarmFork");
+        thread.start();
+        LOG.info("Listening for redeploys on port {}", serverSocket.getLocalPort());
+    }
+
+    private static void accept(final ServerSocket serverSocket, final File stateFile, final String key, final Target target) {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                final String givenKey = in.readLine();
+                final String command = in.readLine();
+                final String argument = in.readLine();
+                if (givenKey == null || !MessageDigest.isEqual(key.getBytes(StandardCharsets.UTF_8), givenKey.getBytes(StandardCharsets.UTF_8))) {
+                    LOG.warn("Ignoring a command with a wrong key from {}", socket.getRemoteSocketAddress());
+                    continue;
+                }
+                final OutputStream out = socket.getOutputStream();
+                if (STOP.equals(command)) {
+                    LOG.info("Stopping on request of the plugin");
+                    stateFile.delete();
+                    target.stop();
+                    reply(out, OK);
+                    System.exit(0);
+                } else if (REDEPLOY.equals(command) && argument != null && !argument.isEmpty()) {
+                    try {
+                        target.redeploy(new File(argument));
+                        reply(out, OK);
+                    } catch (Exception e) {
+                        LOG.warn("Redeploy failed", e);
+                        reply(out, ERROR + " " + e);
+                    }
+                } else {
+                    reply(out, ERROR + " Unknown command " + command);
+                }
+            } catch (Exception e) {
+                LOG.warn("Error handling a command", e);
+            }
+        }
+    }
+
+    private static void reply(final OutputStream out, final String reply) throws IOException {
+        out.write((reply + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void writeState(final File stateFile, final int port, final String key, final String id) throws IOException {
+        final Properties props = new Properties();
+        props.setProperty(PORT, Integer.toString(port));
+        props.setProperty(KEY, key);
+        props.setProperty(ID, id != null ? id : "");
+        final File tmp = new File(stateFile.getPath() + ".tmp");
+        tmp.getParentFile().mkdirs();
+        Files.deleteIfExists(tmp.toPath());
+        tmp.createNewFile();
+        // only the owner may read the key
+        tmp.setReadable(false, false);
+        tmp.setReadable(true, true);
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            props.store(out, "Jetty warm forked process");
+        }
+        Files.move(tmp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
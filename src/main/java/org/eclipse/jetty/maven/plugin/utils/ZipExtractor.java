@@ -0,0 +1,184 @@
+package org.eclipse.jetty.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * ZipExtractor
+ *
+ * Extracts the entries of an archive opened as a {@link ZipFile}: the central directory gives
+ * random access to every entry, so the entries are split in batches written concurrently
+ * by a shared pool of threads. The last modified time of the extracted files is the one of
+ * their entry.
+ */
+public class ZipExtractor {
+
+    private static final Logger LOG = Log.getLogger(ZipExtractor.class);
+
+    /**
+     * Entries extracted by a single task, to keep the scheduling cost low for small entries.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService sharedExecutor;
+
+    private final ExecutorService executor;
+
+    /**
+     * An extractor using the shared pool of threads.
+     */
+    public ZipExtractor() {
+        this(getSharedExecutor());
+    }
+
+    /**
+     * @param executor the executor writing the entries, null to write them on the calling thread
+     */
+    public ZipExtractor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the pool used to write the entries, its threads are daemon threads
+     */
+    public static synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            sharedExecutor = Executors.newFixedThreadPool(POOL_SIZE, r -> {
+                final Thread t = new Thread(r, "ZipExtractor-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * @param zip the archive
+     * @param selector the entries to select
+     * @return the selected entries, without the ones whose name would escape the extraction directory
+     */
+    public static List<ZipEntry> select(final ZipFile zip, final Predicate<String> selector) {
+        final List<ZipEntry> entries = new ArrayList<>();
+        final Enumeration<? extends ZipEntry> e = zip.entries();
+        while (e.hasMoreElements()) {
+            final ZipEntry entry = e.nextElement();
+            final String name = entry.getName();
+            if (URIUtil.canonicalPath(StringUtil.replace(name, '\\', '/')) == null) {
+                LOG.info("Invalid entry: " + name);
+                continue;
+            }
+            if (selector.test(name)) {
+                entries.add(entry);
+            } else {
+                LOG.debug("{} is NOT selected", name);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Extract the selected entries of an archive.
+     *
+     * @param archive the archive
+     * @param directory the directory to extract to
+     * @param selector the entries to extract
+     * @return the number of files extracted
+     * @throws IOException if the archive cannot be extracted
+     */
+    public int extractAll(final File archive, final File directory, final Predicate<String> selector) throws IOException {
+        try (ZipFile zip = new ZipFile(archive)) {
+            return extract(zip, select(zip, selector), directory);
+        }
+    }
+
+    /**
+     * Extract some entries of an archive.
+     *
+     * @param zip the archive
+     * @param entries the entries to extract
+     * @param directory the directory to extract to
+     * @return the number of files extracted
+     * @throws IOException if an entry cannot be extracted
+     */
+    public int extract(final ZipFile zip, final Collection<ZipEntry> entries, final File directory) throws IOException {
+        // create the directories up front so that the workers do not race on them
+        final List<ZipEntry> files = new ArrayList<>(entries.size());
+        for (ZipEntry entry : entries) {
+            final File file = new File(directory, entry.getName());
+            if (entry.isDirectory()) {
+                file.mkdirs();
+            } else {
+                final File parent = file.getParentFile();
+                if (!parent.isDirectory()) {
+                    parent.mkdirs();
+                }
+                files.add(entry);
+            }
+        }
+
+        if (executor == null || files.size() <= BATCH_SIZE) {
+            for (ZipEntry entry : files) {
+                extract(zip, entry, new File(directory, entry.getName()));
+            }
+            return files.size();
+        }
+
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+            final List<ZipEntry> batch = files.subList(i, Math.min(files.size(), i + BATCH_SIZE));
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (ZipEntry entry : batch) {
+                    try {
+                        extract(zip, entry, new File(directory, entry.getName()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Cannot extract " + zip.getName(), e.getCause());
+        }
+        return files.size();
+    }
+
+    private static void extract(final ZipFile zip, final ZipEntry entry, final File file) throws IOException {
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            IO.copy(in, out);
+        }
+        if (entry.getTime() >= 0) {
+            file.setLastModified(entry.getTime());
+        }
+    }
+}